@@ -0,0 +1,54 @@
+package benchmark;
+
+import metrics.LatencyHistogram;
+
+/**
+ * Requests, errors, records, bytes and latencies of one API, recorded by a single connection reader then merged
+ */
+public class ApiStats {
+
+    private long errors;
+    private long records;
+    private long bytes;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+    public void record(long latencyNanos, long recordCount, long byteCount, boolean isError) {
+        latencyHistogram.record(latencyNanos);
+        records += recordCount;
+        bytes += byteCount;
+        if (isError) {
+            errors++;
+        }
+    }
+
+    public static ApiStats merge(Iterable<ApiStats> apiStatsList) {
+        ApiStats merged = new ApiStats();
+        for (ApiStats apiStats : apiStatsList) {
+            merged.latencyHistogram.add(apiStats.latencyHistogram);
+            merged.records += apiStats.records;
+            merged.bytes += apiStats.bytes;
+            merged.errors += apiStats.errors;
+        }
+        return merged;
+    }
+
+    public long percentileNanos(double ratio) {
+        return latencyHistogram.getValueAtPercentile(ratio);
+    }
+
+    public long getRequests() {
+        return latencyHistogram.getCount();
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,285 @@
+package benchmark;
+
+import constant.Constant;
+import domain.message.KeyVersion;
+import domain.message.request.FetchRequestV16;
+import domain.message.request.ProduceRequestV11;
+import domain.message.response.ProduceResponseV11;
+import enums.ErrorCode;
+import tool.BrokerConnection;
+import tool.FetchProgress;
+import tool.RecordBatches;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end benchmark: starts the broker from Main in its own JVM on a temporary log.dirs holding a generated
+ * __cluster_metadata log, drives Produce v11 and Fetch v16 over loopback, then reports throughput and latency
+ * percentiles per API.
+ * <p>
+ * Run with: mvn -P jmh compile exec:exec@broker -Dbroker.args="producers=2 consumers=2 broker.network.mode=selector"
+ * where broker.* arguments are passed to the broker properties. The broker listens on a free ephemeral port unless
+ * broker.port is given, in which case that port must not be taken already.
+ */
+public class BrokerBenchmark {
+
+    private static final String TOPIC_NAME = "broker-benchmark";
+    private static final UUID TOPIC_ID = new UUID(0x62726f6b65726265L, 0x6e63686d61726b00L);
+    private static final String BROKER_PROPERTY_PREFIX = "broker.";
+    private static final long BROKER_START_TIMEOUT_MS = 30000L;
+
+    private final Options options;
+    private final InetSocketAddress address;
+    private volatile boolean isMeasuring;
+    private volatile boolean isRunning = Boolean.TRUE;
+
+    public BrokerBenchmark(Options options, InetSocketAddress address) {
+        this.options = options;
+        this.address = address;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Properties properties = new Properties();
+        for (String arg : args) {
+            String[] keyValue = arg.split("=", 2);
+            properties.setProperty(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+        Options options = Options.of(properties);
+        System.out.printf("benchmark: %s%n", options);
+
+        // step 1: generate the metadata log of the benchmark topic then start the broker
+        Path logDirs = Files.createTempDirectory("broker-benchmark");
+        Path metadataDirectory = logDirs.resolve(Constant.FORMATTED_PARTITION_DIRECTORY.formatted(Constant.DEFAULT_CLUSTER_METADATA_TOPIC_NAME, Constant.INITIAL_PARTITION_INDEX));
+        Files.createDirectories(metadataDirectory);
+        Files.write(metadataDirectory.resolve(Constant.FORMATTED_LOG_SEGMENT_FILE_NAME.formatted(0L)), Fixtures.metadataBatch(TOPIC_NAME, TOPIC_ID, options.partitions()));
+        InetSocketAddress address = new InetSocketAddress("localhost", reservePort(properties));
+        Process broker = startBroker(logDirs, properties, address);
+        try {
+            // step 2: drive the broker then report
+            new BrokerBenchmark(options, address).run();
+        } finally {
+            broker.destroy();
+            broker.waitFor(10, TimeUnit.SECONDS);
+            try (Stream<Path> paths = Files.walk(logDirs)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    /**
+     * Bind the port to check it is free, broker.port or an ephemeral one, so the probe of the broker cannot connect to
+     * another process already listening on it
+     */
+    private static int reservePort(Properties properties) throws IOException {
+        int port = Integer.parseInt(properties.getProperty(BROKER_PROPERTY_PREFIX + Constant.PORT, "0").trim());
+        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            serverSocketChannel.bind(new InetSocketAddress("localhost", port));
+            return ((InetSocketAddress) serverSocketChannel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            throw new IOException("port %s is already taken".formatted(port), e);
+        }
+    }
+
+    private static Process startBroker(Path logDirs, Properties properties, InetSocketAddress address) throws IOException, InterruptedException {
+        Properties brokerProperties = new Properties();
+        brokerProperties.setProperty("log.dirs", logDirs.toString());
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(BROKER_PROPERTY_PREFIX)) {
+                brokerProperties.setProperty(key.substring(BROKER_PROPERTY_PREFIX.length()), properties.getProperty(key));
+            }
+        }
+        brokerProperties.setProperty(Constant.PORT, String.valueOf(address.getPort()));
+        Path serverProperties = logDirs.resolve("server.properties");
+        try (var writer = Files.newBufferedWriter(serverProperties)) {
+            brokerProperties.store(writer, null);
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process broker = new ProcessBuilder(java, "--enable-preview", "-cp", System.getProperty("java.class.path"), "Main", serverProperties.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(logDirs.resolve("broker.out").toFile())
+                .start();
+
+        long deadline = System.currentTimeMillis() + BROKER_START_TIMEOUT_MS;
+        while (true) {
+            if (isAccepting(address)) {
+                // the broker exits when it fails to bind, whatever accepted the probe would then be another process
+                Thread.sleep(100);
+                if (broker.isAlive()) {
+                    return broker;
+                }
+            }
+            if (!broker.isAlive() || System.currentTimeMillis() > deadline) {
+                broker.destroy();
+                throw new IOException("broker did not start on %s, see %s".formatted(address, logDirs.resolve("broker.out")));
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static boolean isAccepting(InetSocketAddress address) {
+        try (SocketChannel ignored = SocketChannel.open(address)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public void run() throws Exception {
+        List<Map<KeyVersion, ApiStats>> statsList = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < options.producers(); i++) {
+            Map<KeyVersion, ApiStats> stats = new HashMap<>();
+            statsList.add(stats);
+            int producerIndex = i;
+            workers.add(Thread.ofPlatform().name("benchmark-producer-" + i).start(() -> produce(producerIndex, stats)));
+        }
+        for (int i = 0; i < options.consumers(); i++) {
+            Map<KeyVersion, ApiStats> stats = new HashMap<>();
+            statsList.add(stats);
+            int consumerIndex = i;
+            workers.add(Thread.ofPlatform().name("benchmark-consumer-" + i).start(() -> consume(consumerIndex, stats)));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds()));
+        isMeasuring = Boolean.TRUE;
+        long startNanos = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds()));
+        isMeasuring = Boolean.FALSE;
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        isRunning = Boolean.FALSE;
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        for (KeyVersion keyVersion : List.of(KeyVersion.PRODUCE, KeyVersion.FETCH)) {
+            ApiStats apiStats = ApiStats.merge(statsList.stream().map(stats -> stats.get(keyVersion)).filter(Objects::nonNull).toList());
+            if (apiStats.getRequests() == 0) {
+                continue;
+            }
+            System.out.printf("api=%s(%s) requests=%d req/s=%.0f records/s=%.0f MB/s=%.2f errors=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus%n",
+                    keyVersion.equals(KeyVersion.PRODUCE) ? "Produce" : "Fetch",
+                    keyVersion.version(),
+                    apiStats.getRequests(),
+                    apiStats.getRequests() / elapsedSeconds,
+                    apiStats.getRecords() / elapsedSeconds,
+                    apiStats.getBytes() / elapsedSeconds / (1024 * 1024),
+                    apiStats.getErrors(),
+                    apiStats.percentileNanos(0.5) / 1e3,
+                    apiStats.percentileNanos(0.99) / 1e3,
+                    apiStats.percentileNanos(0.999) / 1e3,
+                    apiStats.percentileNanos(1.0) / 1e3);
+        }
+    }
+
+    /**
+     * Each producer sends batches of recordsPerBatch records to the partitions in turn, keeping inFlight requests
+     * on its connection
+     */
+    private void produce(int producerIndex, Map<KeyVersion, ApiStats> stats) {
+        List<byte[]> values = new ArrayList<>();
+        Random random = new Random(producerIndex);
+        for (int i = 0; i < options.recordsPerBatch(); i++) {
+            byte[] value = new byte[options.recordSize()];
+            random.nextBytes(value);
+            values.add(value);
+        }
+        byte[] batch = RecordBatches.of(values);
+        ProduceRequestV11[] produceRequests = new ProduceRequestV11[options.partitions()];
+        for (int partitionIndex = 0; partitionIndex < options.partitions(); partitionIndex++) {
+            produceRequests[partitionIndex] = Fixtures.produceRequestV11(TOPIC_NAME, partitionIndex, batch, options.acks());
+        }
+
+        ApiStats apiStats = stats.computeIfAbsent(KeyVersion.PRODUCE, keyVersion -> new ApiStats());
+        try (BrokerConnection brokerConnection = new BrokerConnection(address, "benchmark-producer-" + producerIndex, options.inFlight())) {
+            for (int i = producerIndex; isRunning; i++) {
+                brokerConnection.send(KeyVersion.PRODUCE, produceRequests[i % options.partitions()], (dataInput, responseBytes, latencyNanos) -> {
+                    // acks=0 requests get no response, their latency is the time to write them
+                    ProduceResponseV11 produceResponse = dataInput == null ? null : ProduceResponseV11.deserialize(dataInput);
+                    if (isMeasuring) {
+                        boolean isError = produceResponse != null && produceResponse.responses().stream()
+                                .flatMap(response -> response.partitions().stream())
+                                .anyMatch(partition -> partition.errorCode() != ErrorCode.NONE);
+                        apiStats.record(latencyNanos, options.recordsPerBatch(), batch.length, isError);
+                    }
+                });
+            }
+            brokerConnection.drain();
+        } catch (IOException | InterruptedException e) {
+            System.err.printf("failed to produce due to %s%n", e.getMessage());
+        }
+    }
+
+    /**
+     * Each consumer fetches its share of the partitions in turn from offset 0, one request at a time since the next
+     * fetch offset is only known once the response has been read
+     */
+    private void consume(int consumerIndex, Map<KeyVersion, ApiStats> stats) {
+        List<Integer> partitionIndexes = new ArrayList<>();
+        for (int partitionIndex = consumerIndex; partitionIndex < options.partitions(); partitionIndex += options.consumers()) {
+            partitionIndexes.add(partitionIndex);
+        }
+        if (partitionIndexes.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> fetchOffsets = new HashMap<>();
+
+        ApiStats apiStats = stats.computeIfAbsent(KeyVersion.FETCH, keyVersion -> new ApiStats());
+        try (BrokerConnection brokerConnection = new BrokerConnection(address, "benchmark-consumer-" + consumerIndex, 1)) {
+            for (int i = 0; isRunning; i++) {
+                int partitionIndex = partitionIndexes.get(i % partitionIndexes.size());
+                FetchRequestV16 fetchRequest = Fixtures.fetchRequestV16(TOPIC_ID, List.of(partitionIndex), fetchOffsets.getOrDefault(partitionIndex, 0L),
+                        options.fetchMaxWaitMs(), 1, options.fetchMaxBytes(), options.fetchMaxBytes());
+                brokerConnection.send(KeyVersion.FETCH, fetchRequest, (dataInput, responseBytes, latencyNanos) -> {
+                    FetchProgress fetchProgress = FetchProgress.read(dataInput, fetchOffsets);
+                    if (isMeasuring) {
+                        apiStats.record(latencyNanos, fetchProgress.getRecords(), fetchProgress.getBytes(), fetchProgress.isError());
+                    }
+                });
+                brokerConnection.drain();
+            }
+        } catch (IOException | InterruptedException e) {
+            System.err.printf("failed to consume due to %s%n", e.getMessage());
+        }
+    }
+
+    public record Options(
+            int producers,
+            int consumers,
+            int partitions,
+            int recordSize,
+            int recordsPerBatch,
+            int inFlight,
+            short acks,
+            int fetchMaxBytes,
+            int fetchMaxWaitMs,
+            int warmupSeconds,
+            int durationSeconds
+    ) {
+
+        public static Options of(Properties properties) {
+            return new Options(
+                    Integer.parseInt(properties.getProperty("producers", "1")),
+                    Integer.parseInt(properties.getProperty("consumers", "1")),
+                    Integer.parseInt(properties.getProperty("partitions", "4")),
+                    Integer.parseInt(properties.getProperty("record.size", "100")),
+                    Integer.parseInt(properties.getProperty("records.per.batch", "100")),
+                    Integer.parseInt(properties.getProperty("in.flight", "5")),
+                    Short.parseShort(properties.getProperty("acks", "1")),
+                    Integer.parseInt(properties.getProperty("fetch.max.bytes", "1048576")),
+                    Integer.parseInt(properties.getProperty("fetch.max.wait.ms", "500")),
+                    Integer.parseInt(properties.getProperty("warmup.seconds", "5")),
+                    Integer.parseInt(properties.getProperty("duration.seconds", "20"))
+            );
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import domain.logdata.Batch;
+import domain.logdata.record.Record;
+import domain.message.Header;
+import domain.message.KeyVersion;
+import domain.message.RequestBody;
+import domain.message.request.FetchRequestV16;
+import domain.message.request.ProduceRequestV11;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of each message over both DataInput implementations: frames decoded from a pooled buffer by the network
+ * layers and streams read from log files
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class DeserializeBenchmark {
+
+    @Param({Inputs.BUFFER, Inputs.STREAM})
+    public String input;
+
+    private Inputs header;
+    private Inputs batch;
+    private Inputs record;
+    private Inputs fetchRequest;
+    private Inputs produceRequest;
+
+    @Setup
+    public void setup() {
+        header = new Inputs(input, Fixtures.header(KeyVersion.FETCH));
+        batch = new Inputs(input, Fixtures.batch());
+        record = new Inputs(input, Fixtures.partitionRecord());
+        fetchRequest = new Inputs(input, Fixtures.fetchRequest());
+        produceRequest = new Inputs(input, Fixtures.produceRequest());
+    }
+
+    @Benchmark
+    public Header.V2 headerV2() {
+        return Header.V2.deserialize(header.rewind());
+    }
+
+    @Benchmark
+    public Batch batch() {
+        return Batch.deserialize(batch.rewind());
+    }
+
+    @Benchmark
+    public Record record() {
+        return Record.deserialize(record.rewind());
+    }
+
+    @Benchmark
+    public RequestBody fetchRequestV16() {
+        return FetchRequestV16.deserialize(fetchRequest.rewind());
+    }
+
+    @Benchmark
+    public ProduceRequestV11 produceRequestV11() {
+        return ProduceRequestV11.deserialize(produceRequest.rewind());
+    }
+}
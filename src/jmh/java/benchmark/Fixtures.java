@@ -0,0 +1,156 @@
+package benchmark;
+
+import domain.message.Header;
+import domain.message.KeyVersion;
+import domain.message.request.FetchRequestV16;
+import domain.message.request.ProduceRequestV11;
+import io.DataOutput;
+import io.KafkaDataOutputStream;
+import tool.RecordBatches;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Wire encodings of the messages decoded by the benchmarks, written with the broker's own DataOutput
+ */
+public class Fixtures {
+
+    public static final UUID TOPIC_ID = new UUID(0x0123456789abcdefL, 0x0fedcba987654321L);
+    public static final String TOPIC_NAME = "benchmark-topic";
+    public static final int PARTITION_COUNT = 8;
+    public static final int RECORD_COUNT = 10;
+
+    public static byte[] header(KeyVersion keyVersion) {
+        return encode(new Header.V2(keyVersion, 42, "benchmark-client")::serialize);
+    }
+
+    /**
+     * @return a metadata record batch holding one topic record followed by partition records
+     */
+    public static byte[] batch() {
+        return metadataBatch(TOPIC_NAME, TOPIC_ID, RECORD_COUNT - 1);
+    }
+
+    /**
+     * @return the cluster metadata batch declaring a topic and its partitions, as loaded by Kafka.load
+     */
+    public static byte[] metadataBatch(String topicName, UUID topicId, int partitionCount) {
+        List<byte[]> values = new ArrayList<>();
+        values.add(topicRecordValue(topicName, topicId));
+        for (int i = 0; i < partitionCount; i++) {
+            values.add(partitionRecordValue(topicId, i));
+        }
+        return RecordBatches.of(values);
+    }
+
+    public static byte[] partitionRecord() {
+        return record(0, partitionRecordValue(TOPIC_ID, 0));
+    }
+
+    public static byte[] fetchRequest() {
+        return encode(fetchRequestV16(TOPIC_ID, partitionIndexes(), 1000L, 500, 1, 52428800, 1048576)::serialize);
+    }
+
+    public static FetchRequestV16 fetchRequestV16(UUID topicId, List<Integer> partitionIndexes, long fetchOffset, int maxWaitMs,
+                                                  int minBytes, int maxBytes, int partitionMaxBytes) {
+        List<FetchRequestV16.Partition> partitions = partitionIndexes.stream()
+                .map(partitionIndex -> new FetchRequestV16.Partition(partitionIndex, -1, fetchOffset, -1, -1L, partitionMaxBytes))
+                .toList();
+        return new FetchRequestV16(
+                Duration.ofMillis(maxWaitMs),
+                minBytes,
+                maxBytes,
+                (byte) 0,
+                0,
+                -1,
+                List.of(new FetchRequestV16.Topic(topicId, partitions)),
+                List.of(),
+                ""
+        );
+    }
+
+    public static byte[] produceRequest() {
+        return encode(produceRequestV11(TOPIC_NAME, 0, batch(), (short) 1)::serialize);
+    }
+
+    public static ProduceRequestV11 produceRequestV11(String topicName, int partitionIndex, byte[] batch, short acks) {
+        return new ProduceRequestV11(
+                null,
+                acks,
+                Duration.ofMillis(1000),
+                List.of(new ProduceRequestV11.Topic(topicName, List.of(new ProduceRequestV11.Partition(partitionIndex, ByteBuffer.wrap(batch)))))
+        );
+    }
+
+    public static List<Integer> partitionIndexes() {
+        List<Integer> partitionIndexes = new ArrayList<>();
+        for (int i = 0; i < PARTITION_COUNT; i++) {
+            partitionIndexes.add(i);
+        }
+        return partitionIndexes;
+    }
+
+    private static byte[] record(int offsetDelta, byte[] value) {
+        byte[] body = encode(dataOutput -> {
+            dataOutput.writeByte((byte) 0);
+            dataOutput.writeUnsignedVarInt(zigZag(0));
+            dataOutput.writeUnsignedVarInt(zigZag(offsetDelta));
+            dataOutput.writeUnsignedVarInt(zigZag(-1));
+            dataOutput.writeUnsignedVarInt(zigZag(value.length));
+            dataOutput.writeBytes(value);
+            dataOutput.writeUnsignedVarInt(0);
+        });
+        return encode(dataOutput -> {
+            dataOutput.writeUnsignedVarInt(zigZag(body.length));
+            dataOutput.writeBytes(body);
+        });
+    }
+
+    private static byte[] topicRecordValue(String topicName, UUID topicId) {
+        return encode(dataOutput -> {
+            dataOutput.writeByte((byte) 1);
+            dataOutput.writeByte((byte) 2);
+            dataOutput.writeByte((byte) 0);
+            dataOutput.writeCompactString(topicName);
+            dataOutput.writeUuid(topicId);
+            dataOutput.skipEmptyTaggedFieldArray();
+        });
+    }
+
+    private static byte[] partitionRecordValue(UUID topicId, int partitionIndex) {
+        return encode(dataOutput -> {
+            dataOutput.writeByte((byte) 1);
+            dataOutput.writeByte((byte) 3);
+            dataOutput.writeByte((byte) 1);
+            dataOutput.writeInt(partitionIndex);
+            dataOutput.writeUuid(topicId);
+            dataOutput.writeCompactIntArray(List.of(1, 2, 3));
+            dataOutput.writeCompactIntArray(List.of(1, 2, 3));
+            dataOutput.writeCompactIntArray(List.of());
+            dataOutput.writeCompactIntArray(List.of());
+            dataOutput.writeInt(1);
+            dataOutput.writeInt(0);
+            dataOutput.writeInt(0);
+            dataOutput.writeCompactArray(List.of(new UUID(0L, 1L)), (directory, output) -> output.writeUuid(directory));
+            dataOutput.skipEmptyTaggedFieldArray();
+        });
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static byte[] encode(Consumer<DataOutput> writer) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        KafkaDataOutputStream kafkaDataOutputStream = new KafkaDataOutputStream(byteArrayOutputStream);
+        writer.accept(kafkaDataOutputStream);
+        kafkaDataOutputStream.flush();
+        return byteArrayOutputStream.toByteArray();
+    }
+}
@@ -0,0 +1,56 @@
+package benchmark;
+
+import io.BufferDataInputStream;
+import io.DataInput;
+import io.KafkaDataInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable DataInput over fixed bytes, rewound before every invocation so that setup does not allocate
+ */
+public class Inputs {
+
+    public static final String BUFFER = "buffer";
+    public static final String STREAM = "stream";
+
+    private final ByteBuffer byteBuffer;
+    private final RewindableInputStream inputStream;
+    private final DataInput dataInput;
+
+    public Inputs(String kind, byte[] bytes) {
+        if (BUFFER.equals(kind)) {
+            this.byteBuffer = ByteBuffer.wrap(bytes);
+            this.inputStream = null;
+            this.dataInput = new BufferDataInputStream(byteBuffer);
+        } else if (STREAM.equals(kind)) {
+            this.byteBuffer = null;
+            this.inputStream = new RewindableInputStream(bytes);
+            this.dataInput = new KafkaDataInputStream(inputStream);
+        } else {
+            throw new IllegalArgumentException("unknown input: %s".formatted(kind));
+        }
+    }
+
+    public DataInput rewind() {
+        if (byteBuffer != null) {
+            byteBuffer.clear();
+        } else {
+            inputStream.rewind();
+        }
+        return dataInput;
+    }
+
+    private static class RewindableInputStream extends ByteArrayInputStream {
+
+        RewindableInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        void rewind() {
+            pos = 0;
+            mark = 0;
+        }
+    }
+}
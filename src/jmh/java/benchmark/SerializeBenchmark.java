@@ -0,0 +1,136 @@
+package benchmark;
+
+import domain.message.Header;
+import domain.message.Response;
+import domain.message.response.DescribeTopicPartitionsResponseV0;
+import domain.message.response.FetchResponseV16;
+import enums.ErrorCode;
+import io.DataOutput;
+import io.FileRegion;
+import io.GatheringDataOutput;
+import io.KafkaDataOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of responses into the frame output used by the network layers, and into a stream for comparison,
+ * in which case fetched records are copied out of the file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class SerializeBenchmark {
+
+    public static final String GATHERING = "gathering";
+    public static final String STREAM = "stream";
+
+    @Param({GATHERING, STREAM})
+    public String output;
+
+    private Path logFile;
+    private FileChannel fileChannel;
+    private KafkaDataOutputStream streamOutput;
+    private Response fetchResponse;
+    private Response describeTopicPartitionsResponse;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] batch = Fixtures.batch();
+        logFile = Files.createTempFile("benchmark", ".log");
+        Files.write(logFile, batch);
+        fileChannel = FileChannel.open(logFile, StandardOpenOption.READ);
+        streamOutput = new KafkaDataOutputStream(OutputStream.nullOutputStream());
+
+        FileRegion fileRegion = new FileRegion(fileChannel, 0L, batch.length);
+        List<FetchResponseV16.Partition> fetchPartitions = Fixtures.partitionIndexes().stream()
+                .map(partitionIndex -> new FetchResponseV16.Partition(
+                        partitionIndex,
+                        ErrorCode.NONE,
+                        1000L,
+                        1000L,
+                        0L,
+                        Collections.emptyList(),
+                        -1,
+                        fileRegion
+                ))
+                .toList();
+        fetchResponse = new Response(
+                new Header.V1(42),
+                new FetchResponseV16(
+                        Duration.ZERO,
+                        ErrorCode.NONE,
+                        0,
+                        List.of(new FetchResponseV16.Response(Fixtures.TOPIC_ID, fetchPartitions))
+                )
+        );
+
+        List<DescribeTopicPartitionsResponseV0.Partition> describePartitions = Fixtures.partitionIndexes().stream()
+                .map(partitionIndex -> new DescribeTopicPartitionsResponseV0.Partition(
+                        ErrorCode.NONE,
+                        partitionIndex,
+                        1,
+                        0,
+                        List.of(1, 2, 3),
+                        List.of(1, 2, 3),
+                        Collections.emptyList(),
+                        Collections.emptyList(),
+                        Collections.emptyList()
+                ))
+                .toList();
+        describeTopicPartitionsResponse = new Response(
+                new Header.V1(42),
+                new DescribeTopicPartitionsResponseV0(
+                        Duration.ZERO,
+                        List.of(new DescribeTopicPartitionsResponseV0.Topic(
+                                ErrorCode.NONE,
+                                Fixtures.TOPIC_NAME,
+                                Fixtures.TOPIC_ID,
+                                false,
+                                describePartitions,
+                                0
+                        )),
+                        null
+                )
+        );
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fileChannel.close();
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    public DataOutput fetchResponseV16() {
+        return serialize(fetchResponse);
+    }
+
+    @Benchmark
+    public DataOutput describeTopicPartitionsResponseV0() {
+        return serialize(describeTopicPartitionsResponse);
+    }
+
+    private DataOutput serialize(Response response) {
+        if (GATHERING.equals(output)) {
+            GatheringDataOutput gatheringDataOutput = GatheringDataOutput.ofFrame();
+            response.serialize(gatheringDataOutput);
+            return gatheringDataOutput;
+        }
+        response.serialize(streamOutput);
+        streamOutput.flush();
+        return streamOutput;
+    }
+}
@@ -0,0 +1,83 @@
+package benchmark;
+
+import io.DataInput;
+import io.DataOutput;
+import io.GatheringDataOutput;
+import io.KafkaDataOutputStream;
+import io.VarInt;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--enable-preview")
+public class VarIntBenchmark {
+
+    /**
+     * One to five byte encodings, the widths of lengths, counts and offset deltas found on the wire
+     */
+    private static final long[] VALUES = {0L, 1L, 127L, 128L, 300L, 16383L, 16384L, 2097151L, 2097152L, 268435455L, 268435456L, 2147483647L};
+
+    private DataOutput streamOutput;
+
+    @State(Scope.Thread)
+    public static class Input {
+
+        @Param({Inputs.BUFFER, Inputs.STREAM})
+        public String input;
+
+        private Inputs inputs;
+
+        @Setup
+        public void setup() {
+            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+            KafkaDataOutputStream kafkaDataOutputStream = new KafkaDataOutputStream(byteArrayOutputStream);
+            for (long value : VALUES) {
+                VarInt.writeLong(value, kafkaDataOutputStream);
+            }
+            kafkaDataOutputStream.flush();
+            inputs = new Inputs(input, byteArrayOutputStream.toByteArray());
+        }
+    }
+
+    @Setup
+    public void setup() {
+        streamOutput = new KafkaDataOutputStream(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public long readLong(Input input) {
+        DataInput dataInput = input.inputs.rewind();
+        long sum = 0;
+        for (int i = 0; i < VALUES.length; i++) {
+            sum += VarInt.readLong(dataInput);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void writeLongToStream() {
+        for (long value : VALUES) {
+            VarInt.writeLong(value, streamOutput);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(12)
+    public void writeLongToGatheringOutput(Blackhole blackhole) {
+        GatheringDataOutput gatheringDataOutput = new GatheringDataOutput();
+        for (long value : VALUES) {
+            VarInt.writeLong(value, gatheringDataOutput);
+        }
+        blackhole.consume(gatheringDataOutput);
+    }
+}
@@ -1,61 +1,162 @@
 import domain.ExchangeMapper;
+import domain.message.ConnectionContext;
 import domain.message.Request;
-import domain.message.Response;
+import exception.DataInputException;
 import exception.ProtocolException;
+import io.GatheringDataOutput;
 import io.KafkaDataInputStream;
-import io.KafkaDataOutputStream;
+import metrics.Metrics;
+import metrics.RequestMetrics;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Serves one connection: this thread keeps decoding requests while up to maxInFlightRequests of them are handled
+ * concurrently, and a writer thread sends the responses in the order the requests arrived, which is the
+ * correlation id order of the client. Requests handled in order, produces, each wait for the previous one so that
+ * pipelined batches are appended in the order they were sent.
+ */
 public class Client implements Runnable {
 
-    private final Socket socket;
+    private static final ExecutorService HANDLER_EXECUTOR_SERVICE = Executors.newVirtualThreadPerTaskExecutor();
+    private static final PendingResponse END_OF_RESPONSES = new PendingResponse(CompletableFuture.completedFuture(null), null);
+
+    private final SocketChannel socketChannel;
     private final KafkaDataInputStream kafkaDataInputStream;
-    private final KafkaDataOutputStream kafkaDataOutputStream;
+    private final Semaphore inFlightRequests;
+    private final int maxFrameBytes;
+    private final ConnectionContext connectionContext = new ConnectionContext();
+    private final BlockingQueue<PendingResponse> pendingResponses = new LinkedBlockingQueue<>();
+    // only touched by the reading thread
+    private CompletableFuture<GatheringDataOutput> lastInOrderResponse = CompletableFuture.completedFuture(null);
 
-    public Client(Socket socket) throws IOException {
-        this.socket = socket;
-        this.kafkaDataInputStream = new KafkaDataInputStream(socket.getInputStream());
-        this.kafkaDataOutputStream = new KafkaDataOutputStream(socket.getOutputStream());
+    public Client(SocketChannel socketChannel, int maxInFlightRequests, int maxFrameBytes) {
+        this.socketChannel = socketChannel;
+        this.kafkaDataInputStream = new KafkaDataInputStream(new BufferedInputStream(Channels.newInputStream(socketChannel)));
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        this.maxFrameBytes = maxFrameBytes;
     }
 
     @Override
     public void run() {
+        Metrics.recordConnectionOpened();
+        Thread writer = Thread.ofVirtual().start(this::writeResponses);
         try {
-            while (!socket.isClosed()) {
-                exchange();
+            while (socketChannel.isOpen()) {
+                inFlightRequests.acquire();
+                pendingResponses.add(exchange());
+            }
+        } catch (DataInputException e) {
+            if (!e.isEndOfStream()) {
+                System.err.printf("failed to read request for socket=%s due to error=%s%n", socketChannel.socket().getLocalAddress(), e.getMessage());
             }
         } catch (Exception e) {
-            System.err.printf("failed to exchange for socket=%s due to error=%s", socket.getLocalAddress(), e.getMessage());
+            System.err.printf("failed to exchange for socket=%s due to error=%s%n", socketChannel.socket().getLocalAddress(), e.getMessage());
             e.printStackTrace();
+        } finally {
+            pendingResponses.add(END_OF_RESPONSES);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // a rejected frame leaves the peer connected otherwise
+            closeSocketChannel();
+            Metrics.recordConnectionClosed();
         }
     }
 
-    private void exchange() {
+    private PendingResponse exchange() {
         try {
             // step 1: convert input byte stream into request object
-            Request request = ExchangeMapper.extractRequest(kafkaDataInputStream);
-
-            // step 2: handle request object to response object
-            Response response = ExchangeMapper.handle(request);
+            Request request = ExchangeMapper.extractRequest(kafkaDataInputStream, maxFrameBytes, connectionContext);
 
-            // step 3: convert response object to output byte stream
-            ExchangeMapper.writeResponse(kafkaDataOutputStream, request, response);
+            // step 2: handle request object to response output bytes off this thread, so the next request can be decoded,
+            // after the previous in order request whatever its outcome when this one must be handled in order too
+            CompletableFuture<GatheringDataOutput> response;
+            if (request.requestBody().isHandledInOrder()) {
+                response = lastInOrderResponse.handleAsync((previousResponse, e) -> ExchangeMapper.exchange(request), HANDLER_EXECUTOR_SERVICE);
+                lastInOrderResponse = response;
+            } else {
+                response = CompletableFuture.supplyAsync(() -> ExchangeMapper.exchange(request), HANDLER_EXECUTOR_SERVICE);
+            }
+            return new PendingResponse(response, ExchangeMapper.getRequestMetrics(request));
         } catch (ProtocolException e) {
-            ExchangeMapper.writeErrorResponse(kafkaDataOutputStream, e);
+            return new PendingResponse(CompletableFuture.completedFuture(ExchangeMapper.serializeErrorResponse(e)), null);
+        }
+    }
+
+    private void writeResponses() {
+        try {
+            while (true) {
+                // step 3: write responses in request order, record data is transferred from file to socket
+                PendingResponse pendingResponse = pendingResponses.take();
+                if (pendingResponse == END_OF_RESPONSES) {
+                    return;
+                }
+                // a request expecting no response, e.g. an acks=0 produce, only frees its in-flight slot once handled
+                GatheringDataOutput response = pendingResponse.response().join();
+                if (response != null) {
+                    ExchangeMapper.writeResponse(socketChannel, response, pendingResponse.requestMetrics());
+                }
+                inFlightRequests.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.printf("failed to write response for socket=%s due to error=%s%n", socketChannel.socket().getLocalAddress(), e.getMessage());
+            closeSocketChannel();
+            drainResponses();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Free the in-flight slot of the response that failed and of every one still to come without writing them, so
+     * that a reader blocked on a full window wakes up, finds the socket closed and stops
+     */
+    private void drainResponses() {
+        inFlightRequests.release();
+        try {
+            while (pendingResponses.take() != END_OF_RESPONSES) {
+                inFlightRequests.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void closeSocketChannel() {
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            System.err.printf("failed to close socket due to %s%n", e.getMessage());
         }
     }
 
-    public Socket getSocket() {
-        return socket;
+    public SocketChannel getSocketChannel() {
+        return socketChannel;
     }
 
     public KafkaDataInputStream getKafkaDataInputStream() {
         return kafkaDataInputStream;
     }
 
-    public KafkaDataOutputStream getKafkaDataOutputStream() {
-        return kafkaDataOutputStream;
+    /**
+     * @param requestMetrics metrics of the request being answered, null when the request could not be extracted
+     */
+    private record PendingResponse(
+            CompletableFuture<GatheringDataOutput> response,
+            RequestMetrics requestMetrics
+    ) {
     }
 }
@@ -1,13 +1,26 @@
 import constant.Constant;
+import domain.ExchangeMapper;
+import io.BufferPool;
+import kafka.FetchSessionCache;
 import kafka.Kafka;
+import kafka.LogConfig;
+import kafka.MappedFileCache;
+import metrics.Metrics;
+import metrics.MetricsConfig;
+import metrics.PrometheusExporter;
+import network.NetworkConfig;
+import network.ReactorPool;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.util.Map;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 public class Main {
 
@@ -25,16 +38,51 @@ public class Main {
         }
 
         // step 2: load local appended log metadata to in-memory data structure
-        Kafka.load(new File(properties.getProperty(Constant.LOG_DIRS)));
+        Kafka.setMappedFileCache(MappedFileCache.of(properties));
+        Kafka.load(new File(properties.getProperty(Constant.LOG_DIRS)), LogConfig.of(properties));
+        Kafka.recover();
+        Kafka.setFetchSessionCache(FetchSessionCache.of(properties));
 
-        // step 3: init websocket connection and forward to virtual thread
-        try (final ServerSocket serverSocket = new ServerSocket(Constant.DEFAULT_PORT)) {
-            serverSocket.setReuseAddress(Boolean.TRUE);
+        // step 3: start background deletion of log segments past retention, and checkpointing of recovery points
+        Kafka.startRetention();
+        Kafka.startRecoveryPointCheckpoint();
+
+        // step 4: register request and buffer pool metrics as mbeans, and serve them to prometheus when enabled
+        ExchangeMapper.setRequestBufferPool(BufferPool.of(properties));
+        Metrics.registerRequestMetrics(ExchangeMapper.getREQUEST_METRICS_MAP().values());
+        Metrics.register(Constant.REQUEST_BUFFER_POOL_OBJECT_NAME, ExchangeMapper.getREQUEST_BUFFER_POOL());
+        final MetricsConfig metricsConfig = MetricsConfig.of(properties);
+        if (metricsConfig.isHttpEnabled()) {
+            try {
+                final PrometheusExporter prometheusExporter = PrometheusExporter.start(metricsConfig);
+                System.out.printf("serving metrics on %s%s%n", prometheusExporter.getAddress(), Constant.METRICS_HTTP_PATH);
+            } catch (IOException e) {
+                System.err.printf("failed to start metrics endpoint due to %s%n", e.getMessage());
+            }
+        }
+
+        // step 5: init websocket connection and forward to virtual thread or reactor thread
+        final NetworkConfig networkConfig = NetworkConfig.of(properties);
+        final Consumer<SocketChannel> connectionHandler;
+        if (networkConfig.isSelectorMode()) {
+            try {
+                connectionHandler = new ReactorPool(networkConfig.numNetworkThreads(), networkConfig.socketRequestMaxBytes())::register;
+            } catch (IOException e) {
+                System.err.printf("failed to init network reactors due to %s%n", e.getMessage());
+                return;
+            }
+        } else {
+            connectionHandler = clientSocketChannel -> Thread.ofVirtual().start(new Client(clientSocketChannel, networkConfig.maxInFlightRequests(), networkConfig.socketRequestMaxBytes()));
+        }
+        try (final ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+            serverSocketChannel.bind(new InetSocketAddress(networkConfig.port()));
             while (true) {
                 try {
-                    final Socket clientSocket = serverSocket.accept();
-                    System.out.printf("init connect from client %s%n", clientSocket.getRemoteSocketAddress());
-                    Thread.ofVirtual().start(new Client(clientSocket));
+                    final SocketChannel clientSocketChannel = serverSocketChannel.accept();
+                    clientSocketChannel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+                    System.out.printf("init connect from client %s%n", clientSocketChannel.getRemoteAddress());
+                    connectionHandler.accept(clientSocketChannel);
                 } catch (IOException e) {
                     System.err.printf("failed to start client socket connection due to %s%n", e.getMessage());
                     System.exit(-1);
@@ -42,6 +90,8 @@ public class Main {
             }
         } catch (IOException e) {
             System.err.printf("failed to init server socket connection due to %s%n", e.getMessage());
+            // the background tasks started above would otherwise keep a broker that serves nothing alive
+            System.exit(-1);
         }
     }
 }
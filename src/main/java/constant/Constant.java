@@ -1,13 +1,80 @@
 package constant;
 
 public class Constant {
+    public static final String PORT = "port";
     public static final Integer DEFAULT_PORT = 9092;
     public static final String LOG_DIRS = "log.dirs";
+    public static final String NETWORK_MODE = "network.mode";
+    public static final String NUM_NETWORK_THREADS = "num.network.threads";
+    public static final String CONNECTION_MAX_IN_FLIGHT_REQUESTS = "connection.max.in.flight.requests";
+    public static final String SOCKET_REQUEST_MAX_BYTES = "socket.request.max.bytes";
+    public static final String BUFFER_POOL_DIRECT = "buffer.pool.direct";
+    public static final String BUFFER_POOL_MAX_BYTES = "buffer.pool.max.bytes";
+    public static final String BUFFER_POOL_MAX_BUFFER_BYTES = "buffer.pool.max.buffer.bytes";
+    public static final String METRICS_HTTP_PORT = "metrics.http.port";
+    public static final String MAX_INCREMENTAL_FETCH_SESSION_CACHE_SLOTS = "max.incremental.fetch.session.cache.slots";
+    public static final String NETWORK_MODE_THREAD = "thread";
+    public static final String NETWORK_MODE_SELECTOR = "selector";
+    public static final Integer DEFAULT_NUM_NETWORK_THREADS = 3;
+    public static final Integer DEFAULT_CONNECTION_MAX_IN_FLIGHT_REQUESTS = 5;
+    public static final Integer DEFAULT_SOCKET_REQUEST_MAX_BYTES = 104857600;
+    public static final Boolean DEFAULT_BUFFER_POOL_DIRECT = Boolean.FALSE;
+    public static final Long DEFAULT_BUFFER_POOL_MAX_BYTES = 67108864L;
+    public static final Integer DEFAULT_BUFFER_POOL_MAX_BUFFER_BYTES = 1048576;
+    public static final Integer BUFFER_POOL_MIN_BUFFER_BYTES = 1024;
+    public static final Integer DEFAULT_METRICS_HTTP_PORT = -1;
+    public static final Integer DEFAULT_MAX_INCREMENTAL_FETCH_SESSION_CACHE_SLOTS = 1000;
+    public static final Integer SESSIONLESS_FETCH_SESSION_ID = 0;
+    public static final Integer INITIAL_FETCH_SESSION_EPOCH = 0;
+    public static final Integer FINAL_FETCH_SESSION_EPOCH = -1;
+    public static final String METRICS_HTTP_PATH = "/metrics";
+    public static final String LOG_SEGMENT_BYTES = "log.segment.bytes";
+    public static final String LOG_ROLL_MS = "log.roll.ms";
+    public static final String LOG_RETENTION_MS = "log.retention.ms";
+    public static final String LOG_RETENTION_BYTES = "log.retention.bytes";
+    public static final String LOG_RETENTION_CHECK_INTERVAL_MS = "log.retention.check.interval.ms";
+    public static final String FILE_DELETE_DELAY_MS = "file.delete.delay.ms";
+    public static final String LOG_FLUSH_INTERVAL_MESSAGES = "log.flush.interval.messages";
+    public static final String LOG_MAX_MAPPED_FILES = "log.max.mapped.files";
+    public static final String LOG_FLUSH_OFFSET_CHECKPOINT_INTERVAL_MS = "log.flush.offset.checkpoint.interval.ms";
+    public static final String NUM_RECOVERY_THREADS_PER_DATA_DIR = "num.recovery.threads.per.data.dir";
+    public static final Integer DEFAULT_LOG_SEGMENT_BYTES = 1073741824;
+    public static final Long DEFAULT_LOG_ROLL_MS = 604800000L;
+    public static final Long DEFAULT_LOG_RETENTION_MS = 604800000L;
+    public static final Long DEFAULT_LOG_RETENTION_BYTES = -1L;
+    public static final Long DEFAULT_LOG_RETENTION_CHECK_INTERVAL_MS = 300000L;
+    public static final Long DEFAULT_FILE_DELETE_DELAY_MS = 60000L;
+    public static final Long DEFAULT_LOG_FLUSH_INTERVAL_MESSAGES = Long.MAX_VALUE;
+    public static final Integer DEFAULT_LOG_MAX_MAPPED_FILES = 1024;
+    public static final Long DEFAULT_LOG_FLUSH_OFFSET_CHECKPOINT_INTERVAL_MS = 60000L;
+    public static final Integer DEFAULT_NUM_RECOVERY_THREADS_PER_DATA_DIR = 4;
+    public static final String RECOVERY_POINT_CHECKPOINT_FILE_NAME = "recovery-point-offset-checkpoint";
+    public static final Integer RECOVERY_POINT_CHECKPOINT_VERSION = 0;
     public static final String DEFAULT_CLUSTER_METADATA_TOPIC_NAME = "__cluster_metadata";
     public static final Integer INITIAL_PARTITION_INDEX = 0;
     public static final Integer EOF_INDICATOR = 0;
     public static final String FORMATTED_LOG_ROOT_FILE_PATH = "%s-%s/00000000000000000000.log";
+    public static final String FORMATTED_PARTITION_DIRECTORY = "%s-%s";
+    public static final String FORMATTED_LOG_SEGMENT_FILE_NAME = "%020d.log";
+    public static final String FORMATTED_INDEX_FILE_NAME = "%020d.index";
+    public static final String FORMATTED_REQUEST_METRICS_OBJECT_NAME = "kafka.network:type=RequestMetrics,name=%s,request=%s,version=%s";
+    public static final String REQUEST_METRICS_NAME = "Requests";
+    public static final String REQUEST_BUFFER_POOL_OBJECT_NAME = "kafka.network:type=BufferPool,name=RequestBufferPool";
+    public static final String LOG_SEGMENT_FILE_SUFFIX = ".log";
+    public static final Integer LOG_OVERHEAD = 12;
+    public static final Integer BATCH_LAST_OFFSET_DELTA_POSITION = 23;
+    public static final Integer BATCH_MAGIC_POSITION = 16;
+    public static final Integer BATCH_CRC_POSITION = 17;
+    public static final Integer BATCH_ATTRIBUTES_POSITION = 21;
+    public static final Integer BATCH_OFFSET_HEADER_SIZE = 27;
+    public static final Byte BATCH_MAGIC_V2 = 2;
+    public static final Integer BATCH_RECORDS_COUNT_POSITION = 57;
+    public static final Integer BATCH_HEADER_SIZE = 61;
+    public static final Integer INDEX_ENTRY_SIZE = 8;
+    public static final Integer INDEX_INTERVAL_BYTES = 4096;
     public static final Long NEXXT_OFFSET_INCREMENT = 1L;
+    public static final Short ACKS_NONE = 0;
+    public static final Short ACKS_ALL = -1;
     public static final Long DEFAULT_LOG_START_OFFSET = 0L;
     public static final Long DEFAULT_LOG_START_OFFSET_V2 = -1L;
     public static final Integer DEFAULT_PARTITION_INDEX = 0;
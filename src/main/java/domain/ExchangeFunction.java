@@ -1,10 +1,12 @@
 package domain;
 
+import domain.message.ConnectionContext;
 import domain.message.Header;
 import domain.message.RequestBody;
 import domain.message.ResponseBody;
 import io.DataInput;
 
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
@@ -14,6 +16,7 @@ public class ExchangeFunction {
     private Function<DataInput, RequestBody> requestDeserializer;
     private Function<Header, Header> headerHandler;
     private Function<RequestBody, ResponseBody> requestResponsehandler;
+    private BiFunction<RequestBody, ConnectionContext, ResponseBody> connectionRequestResponseHandler;
 
     public static class Builder {
         private final ExchangeFunction exchangeFunction;
@@ -37,6 +40,14 @@ public class ExchangeFunction {
             return this;
         }
 
+        /**
+         * For handlers keeping state across the requests of a connection, used instead of the request response handler
+         */
+        public Builder ofConnectionRequestResponseHandler(BiFunction<RequestBody, ConnectionContext, ResponseBody> connectionRequestResponseHandler) {
+            exchangeFunction.connectionRequestResponseHandler = connectionRequestResponseHandler;
+            return this;
+        }
+
         public ExchangeFunction build() {
             return exchangeFunction;
         }
@@ -53,4 +64,8 @@ public class ExchangeFunction {
     public Function<RequestBody, ResponseBody> getRequestResponsehandler() {
         return requestResponsehandler;
     }
+
+    public BiFunction<RequestBody, ConnectionContext, ResponseBody> getConnectionRequestResponseHandler() {
+        return connectionRequestResponseHandler;
+    }
 }
@@ -10,20 +10,28 @@ import domain.message.response.DescribeTopicPartitionsResponseV0;
 import domain.message.response.FetchResponseV16;
 import domain.message.response.ProduceResponseV11;
 import enums.ErrorCode;
+import exception.DataInputException;
 import exception.ProtocolException;
 import io.BufferDataInputStream;
+import io.BufferPool;
 import io.DataInput;
-import io.DataOutput;
-import io.KafkaDataOutputStream;
+import io.GatheringDataOutput;
+import metrics.RequestHandleEvent;
+import metrics.RequestMetrics;
+import metrics.RequestReadEvent;
+import metrics.ResponseWriteEvent;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ExchangeMapper {
 
     private static final Map<KeyVersion, ExchangeFunction> EXCHANGE_FUNCTION_MAP = new HashMap<>();
+    private static final Map<KeyVersion, RequestMetrics> REQUEST_METRICS_MAP = new HashMap<>();
+    private static BufferPool REQUEST_BUFFER_POOL = BufferPool.defaults();
 
     static {
         // initialize function map
@@ -46,7 +54,7 @@ public class ExchangeMapper {
                 new ExchangeFunction.Builder()
                         .ofRequestDeserializer(FetchRequestV16::deserialize)
                         .ofHeaderHandler(FetchResponseV16::handleHeader)
-                        .ofRequestResponseHandler(FetchResponseV16::handle)
+                        .ofConnectionRequestResponseHandler(FetchResponseV16::handle)
                         .build());
         EXCHANGE_FUNCTION_MAP.put(
                 KeyVersion.PRODUCE,
@@ -55,12 +63,81 @@ public class ExchangeMapper {
                         .ofHeaderHandler(ProduceResponseV11::handleHeader)
                         .ofRequestResponseHandler(ProduceResponseV11::handle)
                         .build());
+
+        // initialize metrics map, only supported key versions are measured
+        REQUEST_METRICS_MAP.put(KeyVersion.API_VERSIONS, new RequestMetrics("ApiVersions", KeyVersion.API_VERSIONS));
+        REQUEST_METRICS_MAP.put(KeyVersion.DESCRIBE_TOPIC_PARTITIONS, new RequestMetrics("DescribeTopicPartitions", KeyVersion.DESCRIBE_TOPIC_PARTITIONS));
+        REQUEST_METRICS_MAP.put(KeyVersion.FETCH, new RequestMetrics("Fetch", KeyVersion.FETCH));
+        REQUEST_METRICS_MAP.put(KeyVersion.PRODUCE, new RequestMetrics("Produce", KeyVersion.PRODUCE));
     }
 
-    public static Request extractRequest(DataInput dataInput) {
-        // step 1: get messageSize and byteBuffer
+    /**
+     * @param maxFrameBytes the largest frame accepted, as set by socket.request.max.bytes
+     * @throws DataInputException when the frame length prefix is negative or above maxFrameBytes
+     */
+    public static Request extractRequest(DataInput dataInput, int maxFrameBytes, ConnectionContext connectionContext) {
+        // step 1: get messageSize and read the frame into a pooled byteBuffer
         int messageSize = dataInput.readSignedInt();
-        ByteBuffer byteBuffer = dataInput.readNBytes(messageSize);
+        checkFrameSize(messageSize, maxFrameBytes);
+        RequestReadEvent requestReadEvent = new RequestReadEvent();
+        requestReadEvent.begin();
+        long readStartNanos = System.nanoTime();
+        ByteBuffer byteBuffer = REQUEST_BUFFER_POOL.acquire(messageSize);
+        try {
+            dataInput.readFully(byteBuffer);
+        } catch (RuntimeException e) {
+            REQUEST_BUFFER_POOL.release(byteBuffer);
+            throw e;
+        }
+        Request request = extractRequest(byteBuffer.flip(), System.nanoTime() - readStartNanos, connectionContext);
+
+        // step 2: the event is only filled in when a recording wants it, the time spent waiting for the prefix excluded
+        requestReadEvent.end();
+        if (requestReadEvent.shouldCommit()) {
+            Header.V2 header = (Header.V2) request.header();
+            requestReadEvent.apiKey = header.keyVersion().key();
+            requestReadEvent.apiVersion = header.keyVersion().version();
+            requestReadEvent.correlationId = header.correlationId();
+            requestReadEvent.requestBytes = messageSize;
+            requestReadEvent.commit();
+        }
+        return request;
+    }
+
+    /**
+     * @throws DataInputException when the frame length prefix is negative or above maxFrameBytes, the connection
+     * being out of sync or the peer misbehaving
+     */
+    public static void checkFrameSize(int frameSize, int maxFrameBytes) {
+        if (frameSize < 0 || frameSize > maxFrameBytes) {
+            throw new DataInputException(new IOException("invalid frame size %s, socket.request.max.bytes is %s".formatted(frameSize, maxFrameBytes)));
+        }
+    }
+
+    /**
+     * The frame is owned by the returned request and given back to the pool once the request has been exchanged,
+     * or right away when it cannot be extracted
+     *
+     * @param frameReadNanos time spent reading the frame after its length prefix, recorded once the key version is known
+     */
+    public static Request extractRequest(ByteBuffer byteBuffer, long frameReadNanos, ConnectionContext connectionContext) {
+        try {
+            long extractStartNanos = System.nanoTime();
+            Request request = extractRequest0(byteBuffer, connectionContext);
+            RequestMetrics requestMetrics = getRequestMetrics(request);
+            if (requestMetrics != null) {
+                requestMetrics.recordRequest(Integer.BYTES + byteBuffer.limit());
+                requestMetrics.recordStage(RequestMetrics.Stage.REQUEST_READ, frameReadNanos);
+                requestMetrics.recordStage(RequestMetrics.Stage.REQUEST_EXTRACT, System.nanoTime() - extractStartNanos);
+            }
+            return request;
+        } catch (RuntimeException e) {
+            REQUEST_BUFFER_POOL.release(byteBuffer);
+            throw e;
+        }
+    }
+
+    private static Request extractRequest0(ByteBuffer byteBuffer, ConnectionContext connectionContext) {
         BufferDataInputStream bufferDataInputStream = new BufferDataInputStream(byteBuffer);
 
         // step 2: extract header V2
@@ -74,16 +151,33 @@ public class ExchangeMapper {
 
         // step 4: extract request body
         RequestBody requestBody = exchangeFunction.getRequestDeserializer().apply(bufferDataInputStream);
-        return new Request(header, requestBody);
+        return new Request(header, requestBody, byteBuffer, connectionContext);
     }
 
     public static Response handle(Request request) {
+        RequestHandleEvent requestHandleEvent = new RequestHandleEvent();
+        requestHandleEvent.begin();
+        try {
+            return handle0(request);
+        } finally {
+            requestHandleEvent.end();
+            if (requestHandleEvent.shouldCommit()) {
+                Header.V2 header = (Header.V2) request.header();
+                requestHandleEvent.apiKey = header.keyVersion().key();
+                requestHandleEvent.apiVersion = header.keyVersion().version();
+                requestHandleEvent.correlationId = header.correlationId();
+                requestHandleEvent.commit();
+            }
+        }
+    }
+
+    private static Response handle0(Request request) {
         // step 1: get exchangeFunction by KeyVersion
         Header.V2 header = (Header.V2) request.header();
         ExchangeFunction exchangeFunction = EXCHANGE_FUNCTION_MAP.get(header.keyVersion());
         if (exchangeFunction == null
                 || exchangeFunction.getHeaderHandler() == null
-                || exchangeFunction.getRequestResponsehandler() == null) {
+                || (exchangeFunction.getRequestResponsehandler() == null && exchangeFunction.getConnectionRequestResponseHandler() == null)) {
             throw new ProtocolException(ErrorCode.UNSUPPORTED_VERSION, header.correlationId());
         }
 
@@ -91,35 +185,112 @@ public class ExchangeMapper {
         Header responseHeader = exchangeFunction.getHeaderHandler().apply(header);
 
         // step 3: handle response body
-        ResponseBody responseBody = exchangeFunction.getRequestResponsehandler().apply(request.requestBody());
+        ResponseBody responseBody = exchangeFunction.getConnectionRequestResponseHandler() != null
+                ? exchangeFunction.getConnectionRequestResponseHandler().apply(request.requestBody(), request.connectionContext())
+                : exchangeFunction.getRequestResponsehandler().apply(request.requestBody());
         return new Response(responseHeader, responseBody);
     }
 
-    public static void writeResponse(DataOutput dataOutput, Request request, Response response) {
-        if (response == null) {
-            throw new ProtocolException(ErrorCode.UNKNOWN_SERVER_ERROR, ((Header.V2) request.header()).correlationId());
+    /**
+     * Handle the request then serialize its response, protocol errors being turned into error response frames
+     *
+     * @return the response frame, or null when the client expects no response, e.g. an acks=0 produce
+     */
+    public static GatheringDataOutput exchange(Request request) {
+        RequestMetrics requestMetrics = getRequestMetrics(request);
+        long handleStartNanos = System.nanoTime();
+        ErrorCode errorCode = ErrorCode.NONE;
+        try {
+            Response response = handle(request);
+            if (!request.requestBody().expectsResponse()) {
+                return null;
+            }
+            GatheringDataOutput dataOutput = serializeResponse(request, response);
+            errorCode = response.responseBody().firstErrorCode();
+            return dataOutput;
+        } catch (ProtocolException e) {
+            errorCode = e.getErrorCode();
+            return serializeErrorResponse(e);
+        } finally {
+            // the serialized response does not reference the frame, which can be reused by the next request
+            REQUEST_BUFFER_POOL.release(request.frame());
+            if (requestMetrics != null) {
+                requestMetrics.recordErrorCode(errorCode);
+                requestMetrics.recordStage(RequestMetrics.Stage.HANDLE, System.nanoTime() - handleStartNanos);
+            }
         }
+    }
 
-        // step 1: create a byte buffer
-        ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
-        KafkaDataOutputStream kafkaByteBuffer = new KafkaDataOutputStream(byteBuffer);
+    /**
+     * @param requestMetrics metrics of the request answered, or null when the request could not be extracted
+     */
+    public static void writeResponse(WritableByteChannel channel, GatheringDataOutput response, RequestMetrics requestMetrics) throws IOException {
+        ResponseWriteEvent responseWriteEvent = new ResponseWriteEvent();
+        responseWriteEvent.begin();
+        long writeStartNanos = System.nanoTime();
+        while (!response.writeTo(channel)) {
+            /* blocking channels may accept partial writes */
+        }
+        recordResponseWritten(requestMetrics, response, System.nanoTime() - writeStartNanos);
 
-        // step 2: serialize response
-        response.serialize(kafkaByteBuffer);
+        responseWriteEvent.end();
+        if (responseWriteEvent.shouldCommit()) {
+            if (requestMetrics != null) {
+                responseWriteEvent.apiKey = requestMetrics.getKeyVersion().key();
+                responseWriteEvent.apiVersion = requestMetrics.getKeyVersion().version();
+            }
+            responseWriteEvent.responseBytes = response.size();
+            responseWriteEvent.commit();
+        }
+    }
 
-        // step 3: write length of output bytes then output bytes
-        byte[] bytesToWrite = byteBuffer.toByteArray();
-        dataOutput.writeInt(bytesToWrite.length);
-        dataOutput.writeBytes(bytesToWrite);
+    public static void recordResponseWritten(RequestMetrics requestMetrics, GatheringDataOutput response, long writeNanos) {
+        if (requestMetrics == null) {
+            return;
+        }
+        requestMetrics.recordResponse(response.size());
+        requestMetrics.recordStage(RequestMetrics.Stage.RESPONSE_WRITE, writeNanos);
+    }
+
+    /**
+     * @return the length-prefixed response frame, record data staying as file regions until written
+     */
+    public static GatheringDataOutput serializeResponse(Request request, Response response) {
+        if (response == null) {
+            throw new ProtocolException(ErrorCode.UNKNOWN_SERVER_ERROR, ((Header.V2) request.header()).correlationId());
+        }
+        GatheringDataOutput dataOutput = GatheringDataOutput.ofFrame();
+        response.serialize(dataOutput);
+        return dataOutput;
     }
 
-    public static void writeErrorResponse(DataOutput dataOutput, ProtocolException protocolException) {
-        dataOutput.writeInt(Integer.BYTES + Short.BYTES);
+    public static GatheringDataOutput serializeErrorResponse(ProtocolException protocolException) {
+        GatheringDataOutput dataOutput = GatheringDataOutput.ofFrame();
         dataOutput.writeInt(protocolException.getCorrelationId());
         dataOutput.writeShort(protocolException.getErrorCode().getValue());
+        return dataOutput;
     }
 
     public static Map<KeyVersion, ExchangeFunction> getEXCHANGE_FUNCTION_MAP() {
         return EXCHANGE_FUNCTION_MAP;
     }
+
+    public static Map<KeyVersion, RequestMetrics> getREQUEST_METRICS_MAP() {
+        return REQUEST_METRICS_MAP;
+    }
+
+    /**
+     * @return the metrics of the request key version, or null when it is not supported
+     */
+    public static RequestMetrics getRequestMetrics(Request request) {
+        return REQUEST_METRICS_MAP.get(((Header.V2) request.header()).keyVersion());
+    }
+
+    public static BufferPool getREQUEST_BUFFER_POOL() {
+        return REQUEST_BUFFER_POOL;
+    }
+
+    public static void setRequestBufferPool(BufferPool requestBufferPool) {
+        REQUEST_BUFFER_POOL = requestBufferPool;
+    }
 }
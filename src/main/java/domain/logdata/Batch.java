@@ -7,6 +7,7 @@ import java.util.List;
 
 public record Batch(
         long baseOffset,
+        int batchLength,
         int partitionLeaderEpoch,
         byte magic,
         int crc,
@@ -22,6 +23,7 @@ public record Batch(
 
     public static Batch deserialize(DataInput dataInput) {
         long baseOffset = dataInput.readSignedLong();
+        int batchLength = dataInput.readSignedInt();
         int partitionLeaderEpoch = dataInput.readSignedInt();
         byte magic = dataInput.readSignedByte();
         int crc = dataInput.readSignedInt();
@@ -36,6 +38,7 @@ public record Batch(
 
         return new Batch(
                 baseOffset,
+                batchLength,
                 partitionLeaderEpoch,
                 magic,
                 crc,
@@ -0,0 +1,18 @@
+package domain.message;
+
+import kafka.FetchRotation;
+
+/**
+ * State kept across the requests of one client connection
+ */
+public class ConnectionContext {
+
+    private final FetchRotation sessionlessFetchRotation = new FetchRotation();
+
+    /**
+     * @return the partition rotation of the fetches of this connection made outside of a fetch session
+     */
+    public FetchRotation getSessionlessFetchRotation() {
+        return sessionlessFetchRotation;
+    }
+}
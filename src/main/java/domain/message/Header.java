@@ -38,5 +38,14 @@ public sealed interface Header {
             dataInput.skipEmptyTaggedFieldArray();
             return new V2(deserializedKeyVersion, deserializedCorrelationId, deserializedClientId);
         }
+
+        @Override
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeShort(keyVersion.key());
+            dataOutput.writeShort(keyVersion.version());
+            dataOutput.writeInt(correlationId);
+            dataOutput.writeString(clientId);
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 }
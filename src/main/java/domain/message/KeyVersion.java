@@ -1,7 +1,5 @@
 package domain.message;
 
-import java.util.Objects;
-
 public record KeyVersion(
         short key,
         short version
@@ -30,6 +28,7 @@ public record KeyVersion(
 
     @Override
     public int hashCode() {
-        return Objects.hash(key, version);
+        // looked up for every request, so without the boxing and varargs array of Objects.hash
+        return 31 * key + version;
     }
 }
@@ -1,7 +1,15 @@
 package domain.message;
 
+import java.nio.ByteBuffer;
+
+/**
+ * @param frame             the pooled buffer the request was decoded from, released once the request has been exchanged
+ * @param connectionContext the state of the connection the request arrived on
+ */
 public record Request(
         Header header,
-        RequestBody requestBody
+        RequestBody requestBody,
+        ByteBuffer frame,
+        ConnectionContext connectionContext
 ) {
 }
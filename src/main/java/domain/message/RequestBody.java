@@ -1,5 +1,23 @@
 package domain.message;
 
+import io.DataOutput;
+
 public interface RequestBody {
 
+    void serialize(DataOutput dataOutput);
+
+    /**
+     * @return false when the client does not wait for a response, so that none is built nor written
+     */
+    default boolean expectsResponse() {
+        return true;
+    }
+
+    /**
+     * @return true when the requests of a connection must be handled one after the other in the order they arrived,
+     * rather than concurrently with the other requests in flight
+     */
+    default boolean isHandledInOrder() {
+        return false;
+    }
 }
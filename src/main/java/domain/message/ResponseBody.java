@@ -1,8 +1,16 @@
 package domain.message;
 
+import enums.ErrorCode;
 import io.DataOutput;
 
 public interface ResponseBody {
 
     void serialize(DataOutput dataOutput);
+
+    /**
+     * @return the first error code found in the response, NONE when every topic and partition succeeded
+     */
+    default ErrorCode firstErrorCode() {
+        return ErrorCode.NONE;
+    }
 }
@@ -2,6 +2,7 @@ package domain.message.request;
 
 import domain.message.RequestBody;
 import io.DataInput;
+import io.DataOutput;
 
 public record ApiVersionsRequestV4(
         ClientSoftware clientSoftware
@@ -16,6 +17,14 @@ public record ApiVersionsRequestV4(
         return new ApiVersionsRequestV4(new ClientSoftware(clientSoftwareName, clientSoftwareVersion));
     }
 
+    @Override
+    public void serialize(DataOutput dataOutput) {
+        dataOutput.writeCompactString(clientSoftware.name());
+        dataOutput.writeCompactString(clientSoftware.version());
+
+        dataOutput.skipEmptyTaggedFieldArray();
+    }
+
     public record ClientSoftware(
             String name,
             String version
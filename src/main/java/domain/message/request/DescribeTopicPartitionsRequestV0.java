@@ -2,6 +2,7 @@ package domain.message.request;
 
 import domain.message.RequestBody;
 import io.DataInput;
+import io.DataOutput;
 
 import java.util.List;
 
@@ -18,6 +19,19 @@ public record DescribeTopicPartitionsRequestV0(
         return new DescribeTopicPartitionsRequestV0(topics, responsePartitionLimit, cursor);
     }
 
+    @Override
+    public void serialize(DataOutput dataOutput) {
+        dataOutput.writeCompactArray(topics, Topic::serialize);
+        dataOutput.writeInt(responsePartitionLimit);
+        if (cursor == null) {
+            dataOutput.writeByte((byte) 0xff);
+        } else {
+            cursor.serialize(dataOutput);
+        }
+
+        dataOutput.skipEmptyTaggedFieldArray();
+    }
+
     public record Topic(
             String name
     ) {
@@ -29,6 +43,12 @@ public record DescribeTopicPartitionsRequestV0(
 
             return new Topic(name);
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeCompactString(name);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 
     public record DescribeTopicPartitionsCursorV0(
@@ -48,5 +68,12 @@ public record DescribeTopicPartitionsRequestV0(
 
             return new DescribeTopicPartitionsCursorV0(topicName, partitionIndex);
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeCompactString(topicName);
+            dataOutput.writeInt(partitionIndex);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 }
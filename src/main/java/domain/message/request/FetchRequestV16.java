@@ -2,6 +2,7 @@ package domain.message.request;
 
 import domain.message.RequestBody;
 import io.DataInput;
+import io.DataOutput;
 
 import java.time.Duration;
 import java.util.List;
@@ -45,6 +46,21 @@ public record FetchRequestV16(
         );
     }
 
+    @Override
+    public void serialize(DataOutput dataOutput) {
+        dataOutput.writeInt((int) maxWait.toMillis());
+        dataOutput.writeInt(minBytes);
+        dataOutput.writeInt(maxBytes);
+        dataOutput.writeByte(isolationLevel);
+        dataOutput.writeInt(sessionId);
+        dataOutput.writeInt(sessionEpoch);
+        dataOutput.writeCompactArray(topics, Topic::serialize);
+        dataOutput.writeCompactArray(forgottenTopics, ForgottenTopic::serialize);
+        dataOutput.writeCompactString(rackId);
+
+        dataOutput.skipEmptyTaggedFieldArray();
+    }
+
     public record Topic(
             UUID topicUuid,
             List<Partition> partitions
@@ -58,6 +74,13 @@ public record FetchRequestV16(
 
             return new Topic(topicUuid, partitions);
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeUuid(topicUuid);
+            dataOutput.writeCompactArray(partitions, Partition::serialize);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 
     public record Partition(
@@ -88,6 +111,17 @@ public record FetchRequestV16(
                     partitionMaxBytes
             );
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeInt(partition);
+            dataOutput.writeInt(currentLeaderEpoch);
+            dataOutput.writeLong(fetchOffset);
+            dataOutput.writeInt(lastFetchedEpoch);
+            dataOutput.writeLong(logStartOffset);
+            dataOutput.writeInt(partitionMaxBytes);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 
     public record ForgottenTopic(
@@ -98,7 +132,17 @@ public record FetchRequestV16(
         public static ForgottenTopic deserialize(DataInput dataInput) {
             UUID topicId = dataInput.readUuid();
             List<Integer> partitions = dataInput.readCompactArray(DataInput::readSignedInt);
+
+            dataInput.skipEmptyTaggedFieldArray();
+
             return new ForgottenTopic(topicId, partitions);
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeUuid(topicId);
+            dataOutput.writeCompactIntArray(partitions);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 }
@@ -1,7 +1,9 @@
 package domain.message.request;
 
+import constant.Constant;
 import domain.message.RequestBody;
 import io.DataInput;
+import io.DataOutput;
 
 import java.nio.ByteBuffer;
 import java.time.Duration;
@@ -25,6 +27,40 @@ public record ProduceRequestV11(
         return new ProduceRequestV11(transactionId, ACKs, timeout, topics);
     }
 
+    @Override
+    public void serialize(DataOutput dataOutput) {
+        dataOutput.writeCompactString(transactionId);
+        dataOutput.writeShort(acks);
+        dataOutput.writeInt((int) timeout.toMillis());
+        dataOutput.writeCompactArray(topics, Topic::serialize);
+
+        dataOutput.skipEmptyTaggedFieldArray();
+    }
+
+    /**
+     * acks=0 producers fire and forget
+     */
+    @Override
+    public boolean expectsResponse() {
+        return acks != Constant.ACKS_NONE;
+    }
+
+    /**
+     * Batches pipelined by a producer must reach each partition log in the order they were sent
+     */
+    @Override
+    public boolean isHandledInOrder() {
+        return true;
+    }
+
+    /**
+     * acks=-1 producers are only answered once their batches are synced to disk, acks=1 ones once written to the
+     * page cache
+     */
+    public boolean isDurable() {
+        return acks == Constant.ACKS_ALL;
+    }
+
     public record Topic(
             String name,
             List<Partition> partitions
@@ -39,6 +75,13 @@ public record ProduceRequestV11(
             return new Topic(name, partitions);
         }
 
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeCompactString(name);
+            dataOutput.writeCompactArray(partitions, Partition::serialize);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
+
     }
 
     public record Partition(
@@ -54,5 +97,12 @@ public record ProduceRequestV11(
 
             return new Partition(index, byteBuffer);
         }
+
+        public void serialize(DataOutput dataOutput) {
+            dataOutput.writeInt(index);
+            dataOutput.writeCompactBytes(byteBuffer);
+
+            dataOutput.skipEmptyTaggedFieldArray();
+        }
     }
 }
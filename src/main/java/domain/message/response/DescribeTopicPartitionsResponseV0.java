@@ -7,6 +7,7 @@ import domain.message.RequestBody;
 import domain.message.ResponseBody;
 import domain.message.request.DescribeTopicPartitionsRequestV0;
 import enums.ErrorCode;
+import io.DataInput;
 import io.DataOutput;
 import kafka.Kafka;
 
@@ -67,6 +68,21 @@ public record DescribeTopicPartitionsResponseV0(
         return new DescribeTopicPartitionsResponseV0(Duration.ZERO, topicList, null);
     }
 
+    public static DescribeTopicPartitionsResponseV0 deserialize(DataInput dataInput) {
+        Duration throttleTime = Duration.ofMillis(dataInput.readSignedInt());
+        List<Topic> topics = dataInput.readCompactArray(Topic::deserialize);
+        DescribeTopicPartitionsCursorV0 cursor = null;
+        if (dataInput.peekByte() == (byte) 0xff) {
+            dataInput.readSignedLong();
+        } else {
+            cursor = DescribeTopicPartitionsCursorV0.deserialize(dataInput);
+        }
+
+        dataInput.skipEmptyTaggedFieldArray();
+
+        return new DescribeTopicPartitionsResponseV0(throttleTime, topics, cursor);
+    }
+
     @Override
     public void serialize(DataOutput dataOutput) {
         dataOutput.writeInt((int) throttleTime.toMillis());
@@ -80,6 +96,21 @@ public record DescribeTopicPartitionsResponseV0(
         dataOutput.skipEmptyTaggedFieldArray();
     }
 
+    @Override
+    public ErrorCode firstErrorCode() {
+        for (Topic topic : topics) {
+            if (topic.errorCode() != ErrorCode.NONE) {
+                return topic.errorCode();
+            }
+            for (Partition partition : topic.partitions()) {
+                if (partition.errorCode() != ErrorCode.NONE) {
+                    return partition.errorCode();
+                }
+            }
+        }
+        return ErrorCode.NONE;
+    }
+
     public record Topic(
             ErrorCode errorCode,
             String name,
@@ -89,6 +120,19 @@ public record DescribeTopicPartitionsResponseV0(
             int topicAuthorizedOperations
     ) implements ResponseBody, Comparable<Topic> {
 
+        public static Topic deserialize(DataInput dataInput) {
+            ErrorCode errorCode = ErrorCode.of(dataInput.readSignedShort());
+            String name = dataInput.readCompactString();
+            UUID topicId = dataInput.readUuid();
+            boolean isInternal = dataInput.readSignedByte() != 0;
+            List<Partition> partitions = dataInput.readCompactArray(Partition::deserialize);
+            int topicAuthorizedOperations = dataInput.readSignedInt();
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new Topic(errorCode, name, topicId, isInternal, partitions, topicAuthorizedOperations);
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeShort(errorCode.getValue());
@@ -119,6 +163,32 @@ public record DescribeTopicPartitionsResponseV0(
             List<Integer> offlineReplicas
     ) implements ResponseBody {
 
+        public static Partition deserialize(DataInput dataInput) {
+            ErrorCode errorCode = ErrorCode.of(dataInput.readSignedShort());
+            int partitionIndex = dataInput.readSignedInt();
+            int leaderId = dataInput.readSignedInt();
+            int leaderEpoch = dataInput.readSignedInt();
+            List<Integer> replicaNodes = dataInput.readCompactIntArray();
+            List<Integer> inSyncReplicasNodes = dataInput.readCompactIntArray();
+            List<Integer> eligibleLeaderReplicas = dataInput.readCompactIntArray();
+            List<Integer> lastKnownElr = dataInput.readCompactIntArray();
+            List<Integer> offlineReplicas = dataInput.readCompactIntArray();
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new Partition(
+                    errorCode,
+                    partitionIndex,
+                    leaderId,
+                    leaderEpoch,
+                    replicaNodes,
+                    inSyncReplicasNodes,
+                    eligibleLeaderReplicas,
+                    lastKnownElr,
+                    offlineReplicas
+            );
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeShort(errorCode.getValue());
@@ -140,6 +210,15 @@ public record DescribeTopicPartitionsResponseV0(
             int partitionIndex
     ) implements ResponseBody {
 
+        public static DescribeTopicPartitionsCursorV0 deserialize(DataInput dataInput) {
+            String topicName = dataInput.readCompactString();
+            int partitionIndex = dataInput.readSignedInt();
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new DescribeTopicPartitionsCursorV0(topicName, partitionIndex);
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeCompactString(topicName);
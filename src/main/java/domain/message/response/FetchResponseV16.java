@@ -2,18 +2,27 @@ package domain.message.response;
 
 import constant.Constant;
 import domain.logdata.record.Record;
+import domain.message.ConnectionContext;
 import domain.message.Header;
 import domain.message.RequestBody;
 import domain.message.ResponseBody;
 import domain.message.request.FetchRequestV16;
 import enums.ErrorCode;
 import io.DataOutput;
+import io.FileRegion;
+import kafka.FetchRotation;
+import kafka.FetchSession;
+import kafka.FetchSessionCache;
 import kafka.Kafka;
+import kafka.TopicPartition;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public record FetchResponseV16(
@@ -28,11 +37,117 @@ public record FetchResponseV16(
         return new Header.V1(headerV2.correlationId());
     }
 
-    public static FetchResponseV16 handle(RequestBody requestBody) {
+    /**
+     * Fetches carrying a session id and epoch read the partitions of their fetch session, only answering those with
+     * something new when incremental
+     *
+     * @param connectionContext the connection rotating the partitions of sessionless fetches, or null to always
+     *                          read them in request order
+     */
+    public static FetchResponseV16 handle(RequestBody requestBody, ConnectionContext connectionContext) {
         FetchRequestV16 apiRequest = (FetchRequestV16) requestBody;
+
+        // step 1: a full fetch replaces the session of the consumer, an incremental one must follow its last epoch
+        FetchSessionCache fetchSessionCache = Kafka.getFETCH_SESSION_CACHE();
+        int sessionEpoch = apiRequest.sessionEpoch();
+        boolean isIncremental = sessionEpoch != Constant.INITIAL_FETCH_SESSION_EPOCH && sessionEpoch != Constant.FINAL_FETCH_SESSION_EPOCH;
+        FetchSession fetchSession;
+        if (isIncremental) {
+            fetchSession = fetchSessionCache.get(apiRequest.sessionId());
+            if (fetchSession == null) {
+                return errorResponse(ErrorCode.FETCH_SESSION_ID_NOT_FOUND);
+            }
+            if (!fetchSession.tryAdvanceEpoch(sessionEpoch)) {
+                return errorResponse(ErrorCode.INVALID_FETCH_SESSION_EPOCH);
+            }
+        } else {
+            if (apiRequest.sessionId() != Constant.SESSIONLESS_FETCH_SESSION_ID) {
+                fetchSessionCache.remove(apiRequest.sessionId());
+            }
+            fetchSession = sessionEpoch == Constant.INITIAL_FETCH_SESSION_EPOCH ? fetchSessionCache.create() : null;
+        }
+
+        // step 2: read every partition of the session, or of the request when sessionless
+        if (fetchSession == null) {
+            FetchRotation fetchRotation = connectionContext == null ? new FetchRotation() : connectionContext.getSessionlessFetchRotation();
+            return readMinBytes(apiRequest, apiRequest.topics(), Constant.SESSIONLESS_FETCH_SESSION_ID, fetchRotation);
+        }
+        List<FetchRequestV16.Topic> sessionTopics = fetchSession.update(apiRequest.topics(), apiRequest.forgottenTopics());
+        FetchResponseV16 response = readMinBytes(apiRequest, sessionTopics, fetchSession.getSessionId(), fetchSession.getFetchRotation());
+
+        // step 3: leave out of an incremental response the partitions the consumer already knows everything about
         List<Response> responseList = new ArrayList<>();
+        for (Response topicResponse : response.responses()) {
+            List<Partition> partitionList = new ArrayList<>();
+            for (Partition partition : topicResponse.partitions()) {
+                boolean isLogStartOffsetUpdated = fetchSession.updateLogStartOffset(topicResponse.topicId(), partition.partitionIndex(), partition.logStartOffset());
+                boolean hasRecords = partition.records() != null && partition.records().size() > 0;
+                if (!isIncremental || isLogStartOffsetUpdated || hasRecords || partition.errorCode() != ErrorCode.NONE) {
+                    partitionList.add(partition);
+                }
+            }
+            if (!partitionList.isEmpty()) {
+                responseList.add(new Response(topicResponse.topicId(), partitionList));
+            }
+        }
+        return new FetchResponseV16(response.throttleTime(), response.errorCode(), response.sessionId(), responseList);
+    }
+
+    /**
+     * A fetch finding fewer than minBytes waits up to maxWait for producers to append more, parking its handler
+     * thread rather than having the consumer poll again right away
+     */
+    private static FetchResponseV16 readMinBytes(FetchRequestV16 apiRequest, List<FetchRequestV16.Topic> topics, int sessionId, FetchRotation fetchRotation) {
+        long maxWaitMs = apiRequest.maxWait().toMillis();
+        if (maxWaitMs <= 0 || apiRequest.minBytes() <= 0) {
+            return read(apiRequest, topics, sessionId, fetchRotation);
+        }
+
+        // step 1: answer right away when enough data, or an error, was found
+        Map<TopicPartition, Long> logEndOffsets = getLogEndOffsets(topics);
+        FetchResponseV16 response = read(apiRequest, topics, sessionId, fetchRotation);
+        long readBytes = response.recordBytes();
+        if (readBytes >= apiRequest.minBytes() || response.firstErrorCode() != ErrorCode.NONE) {
+            return response;
+        }
+
+        // step 2: wait for appends to the fetched partitions, reading them again only if some arrived
+        try {
+            if (!Kafka.awaitFetchData(logEndOffsets, readBytes, apiRequest.minBytes(), maxWaitMs)) {
+                return response;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return response;
+        }
+        return read(apiRequest, topics, sessionId, fetchRotation);
+    }
 
-        for (FetchRequestV16.Topic requestTopic : apiRequest.topics()) {
+    private static FetchResponseV16 errorResponse(ErrorCode errorCode) {
+        return new FetchResponseV16(Duration.ZERO, errorCode, Constant.SESSIONLESS_FETCH_SESSION_ID, Collections.emptyList());
+    }
+
+    private static Map<TopicPartition, Long> getLogEndOffsets(List<FetchRequestV16.Topic> topics) {
+        Map<TopicPartition, Long> logEndOffsets = new HashMap<>();
+        for (FetchRequestV16.Topic requestTopic : topics) {
+            Record.Topic recordTopic = Kafka.getTopicById(requestTopic.topicUuid());
+            if (recordTopic == null) {
+                continue;
+            }
+            for (FetchRequestV16.Partition partitionRequest : requestTopic.partitions()) {
+                int partitionIndex = partitionRequest.partition();
+                logEndOffsets.put(new TopicPartition(recordTopic.name(), partitionIndex), Kafka.getLogEndOffset(recordTopic.name(), partitionIndex));
+            }
+        }
+        return logEndOffsets;
+    }
+
+    private static FetchResponseV16 read(FetchRequestV16 apiRequest, List<FetchRequestV16.Topic> topics, int sessionId, FetchRotation fetchRotation) {
+        // step 1: answer unknown topics and partitions out of range, queueing the reads of the others
+        List<Response> responseList = new ArrayList<>();
+        List<PartitionRead> partitionReadList = new ArrayList<>();
+
+        for (FetchRequestV16.Topic requestTopic : topics) {
             UUID topicId = requestTopic.topicUuid();
             Record.Topic recordTopic = Kafka.getTopicById(topicId);
 
@@ -48,7 +163,7 @@ public record FetchResponseV16(
                                         Constant.DEFAULT_LOG_START_OFFSET,
                                         Collections.emptyList(),
                                         Constant.DEFAULT_PREFERRED_READ_REPLICA,
-                                        new byte[0]
+                                        null
                                 )
                         )
                 ));
@@ -56,31 +171,73 @@ public record FetchResponseV16(
             }
 
             String topicName = recordTopic.name();
-            List<Partition> partitionList = new ArrayList<>();
-            for (FetchRequestV16.Partition partitionRequest : requestTopic.partitions()) {
+            Partition[] partitions = new Partition[requestTopic.partitions().size()];
+            for (int i = 0; i < partitions.length; i++) {
+                FetchRequestV16.Partition partitionRequest = requestTopic.partitions().get(i);
                 int partitionIndex = partitionRequest.partition();
-                partitionList.add(new Partition(
-                        partitionIndex,
-                        ErrorCode.NONE,
-                        Constant.DEFAULT_HIGH_WATER_MARK,
-                        Constant.DEFAULT_LAST_STABLE_OFFSET,
-                        Constant.DEFAULT_LOG_START_OFFSET,
-                        Collections.emptyList(),
-                        Constant.DEFAULT_PREFERRED_READ_REPLICA,
-                        Kafka.readRawBatchData(topicName, partitionIndex)
-                ));
+                long logStartOffset = Kafka.getLogStartOffset(topicName, partitionIndex);
+                if (partitionRequest.fetchOffset() < logStartOffset) {
+                    partitions[i] = new Partition(
+                            partitionIndex,
+                            ErrorCode.OFFSET_OUT_OF_RANGE,
+                            Constant.DEFAULT_HIGH_WATER_MARK,
+                            Constant.DEFAULT_LAST_STABLE_OFFSET,
+                            logStartOffset,
+                            Collections.emptyList(),
+                            Constant.DEFAULT_PREFERRED_READ_REPLICA,
+                            null
+                    );
+                    continue;
+                }
+                partitionReadList.add(new PartitionRead(topicName, partitionRequest, logStartOffset, partitions, i));
             }
 
+            // the partitions left to read are filled in by step 2
             responseList.add(new Response(
                     topicId,
-                    partitionList
+                    Arrays.asList(partitions)
             ));
         }
 
+        // step 2: share maxBytes between the partitions in turn, each capped by its partitionMaxBytes, starting after
+        // the last partition the previous fetch of the consumer returned data for
+        int partitionReadCount = partitionReadList.size();
+        int firstRead = fetchRotation.getFirstRead(partitionReadCount);
+        int lastServed = -1;
+        long remainingBytes = Math.max(0, apiRequest.maxBytes());
+        boolean isMinOneBatch = Boolean.TRUE;
+        for (int i = 0; i < partitionReadCount; i++) {
+            int partitionReadIndex = (firstRead + i) % partitionReadCount;
+            PartitionRead partitionRead = partitionReadList.get(partitionReadIndex);
+            FetchRequestV16.Partition partitionRequest = partitionRead.partitionRequest();
+            long maxBytes = Math.min(remainingBytes, Math.max(0, partitionRequest.partitionMaxBytes()));
+            // the first batch found is returned whatever its size, so that consumption always makes progress
+            FileRegion records = Kafka.readRawBatchData(partitionRead.topicName(), partitionRequest.partition(), partitionRequest.fetchOffset(), maxBytes, isMinOneBatch);
+            if (records != null && records.size() > 0) {
+                remainingBytes = Math.max(0, remainingBytes - records.size());
+                isMinOneBatch = Boolean.FALSE;
+                lastServed = partitionReadIndex;
+            }
+            partitionRead.partitions()[partitionRead.slot()] = new Partition(
+                    partitionRequest.partition(),
+                    ErrorCode.NONE,
+                    Constant.DEFAULT_HIGH_WATER_MARK,
+                    Constant.DEFAULT_LAST_STABLE_OFFSET,
+                    partitionRead.logStartOffset(),
+                    Collections.emptyList(),
+                    Constant.DEFAULT_PREFERRED_READ_REPLICA,
+                    records
+            );
+        }
+
+        if (lastServed >= 0) {
+            fetchRotation.advancePast(lastServed);
+        }
+
         return new FetchResponseV16(
                 Duration.ZERO,
                 ErrorCode.NONE,
-                apiRequest.sessionId(),
+                sessionId,
                 responseList
         );
     }
@@ -95,6 +252,36 @@ public record FetchResponseV16(
         dataOutput.skipEmptyTaggedFieldArray();
     }
 
+    /**
+     * @return the size of the record data of every partition
+     */
+    public long recordBytes() {
+        long recordBytes = 0;
+        for (Response response : responses) {
+            for (Partition partition : response.partitions()) {
+                if (partition.records() != null) {
+                    recordBytes += partition.records().size();
+                }
+            }
+        }
+        return recordBytes;
+    }
+
+    @Override
+    public ErrorCode firstErrorCode() {
+        if (errorCode != ErrorCode.NONE) {
+            return errorCode;
+        }
+        for (Response response : responses) {
+            for (Partition partition : response.partitions()) {
+                if (partition.errorCode() != ErrorCode.NONE) {
+                    return partition.errorCode();
+                }
+            }
+        }
+        return ErrorCode.NONE;
+    }
+
     public record Response(
             UUID topicId,
             List<Partition> partitions
@@ -116,7 +303,7 @@ public record FetchResponseV16(
             long logStartOffset,
             List<AbortedTransaction> abortedTransactions,
             int preferredReadReplica,
-            byte[] bytes
+            FileRegion records
     ) implements ResponseBody {
 
         @Override
@@ -128,12 +315,24 @@ public record FetchResponseV16(
             dataOutput.writeLong(logStartOffset);
             dataOutput.writeCompactArray(abortedTransactions, AbortedTransaction::serialize);
             dataOutput.writeInt(preferredReadReplica);
-            dataOutput.writeBytes(bytes);
+            dataOutput.writeCompactRecords(records);
 
             dataOutput.skipEmptyTaggedFieldArray();
         }
     }
 
+    /**
+     * A partition to read, its response going to the given slot of its topic
+     */
+    private record PartitionRead(
+            String topicName,
+            FetchRequestV16.Partition partitionRequest,
+            long logStartOffset,
+            Partition[] partitions,
+            int slot
+    ) {
+    }
+
     public record AbortedTransaction(
             long producerId,
             long firstOffset
@@ -1,6 +1,9 @@
 package domain.message.response;
 
+import enums.ErrorCode;
+
 public record NewOffsetResponse(
+        ErrorCode errorCode,
         long nextOffset,
         long logStartOffset
 ) {
@@ -7,6 +7,7 @@ import domain.message.RequestBody;
 import domain.message.ResponseBody;
 import domain.message.request.ProduceRequestV11;
 import enums.ErrorCode;
+import io.DataInput;
 import io.DataOutput;
 import kafka.Kafka;
 
@@ -23,10 +24,30 @@ public record ProduceResponseV11(
         return new Header.V1(headerV2.correlationId());
     }
 
+    /**
+     * @return the response, or null for an acks=0 request whose batches are appended without answering
+     */
     public static ProduceResponseV11 handle(RequestBody requestBody) {
         ProduceRequestV11 apiRequest = (ProduceRequestV11) requestBody;
-        List<Response> responseList = new ArrayList<>();
 
+        // step 1: a fire-and-forget produce only appends, no response is built for it
+        if (!apiRequest.expectsResponse()) {
+            for (ProduceRequestV11.Topic requestTopic : apiRequest.topics()) {
+                Record.Topic recordTopic = Kafka.getTopicByName(requestTopic.name());
+                if (recordTopic == null) {
+                    continue;
+                }
+                for (ProduceRequestV11.Partition requestPartition : requestTopic.partitions()) {
+                    if (isKnownPartition(recordTopic.uuid(), requestPartition.index())) {
+                        Kafka.appendBatchData(requestTopic.name(), requestPartition.index(), requestPartition.byteBuffer(), apiRequest.isDurable());
+                    }
+                }
+            }
+            return null;
+        }
+
+        // step 2: append to every known partition, answering each with its base offset or error
+        List<Response> responseList = new ArrayList<>();
         for (ProduceRequestV11.Topic requestTopic : apiRequest.topics()) {
             String topicName = requestTopic.name();
             Record.Topic recordTopic = Kafka.getTopicByName(topicName);
@@ -52,25 +73,7 @@ public record ProduceResponseV11(
             for (ProduceRequestV11.Partition requestPartition : requestTopic.partitions()) {
                 int partitionIndex = requestPartition.index();
 
-                List<Record.Partition> partitionRecordList = Kafka.getPartitionListByTopicId(recordTopicId);
-                if (partitionRecordList == null || partitionRecordList.isEmpty()) {
-                    responsePartitionList.add(new Partition(
-                            partitionIndex,
-                            ErrorCode.UNKNOWN_TOPIC_OR_PARTITION,
-                            Constant.DEFAULT_BASE_OFFSET,
-                            Constant.DEFAULT_LOG_APPEND_TIME_MS,
-                            Constant.DEFAULT_LOG_START_OFFSET_V2,
-                            Collections.emptyList(),
-                            null
-                    ));
-                    continue;
-                }
-
-                Record.Partition partitionRecord = partitionRecordList.stream()
-                        .filter(partition -> Objects.equals(partition.id(), partitionIndex))
-                        .findFirst()
-                        .orElse(null);
-                if (partitionRecord == null) {
+                if (!isKnownPartition(recordTopicId, partitionIndex)) {
                     responsePartitionList.add(new Partition(
                             partitionIndex,
                             ErrorCode.UNKNOWN_TOPIC_OR_PARTITION,
@@ -83,10 +86,11 @@ public record ProduceResponseV11(
                     continue;
                 }
 
-                NewOffsetResponse newOffsetResponse = Kafka.appendBatchData(topicName, partitionIndex, requestPartition.byteBuffer());
+                NewOffsetResponse newOffsetResponse = Kafka.appendBatchData(topicName, partitionIndex, requestPartition.byteBuffer(), apiRequest.isDurable());
+                // a failed append must never be acknowledged as written, a rejected batch being reported as corrupt
                 responsePartitionList.add(new Partition(
                         partitionIndex,
-                        ErrorCode.NONE,
+                        Objects.nonNull(newOffsetResponse) ? newOffsetResponse.errorCode() : ErrorCode.UNKNOWN_SERVER_ERROR,
                         Objects.nonNull(newOffsetResponse) ? newOffsetResponse.nextOffset() : Constant.DEFAULT_NEW_OFFSET,
                         Constant.DEFAULT_LOG_APPEND_TIME_MS,
                         Objects.nonNull(newOffsetResponse) ? newOffsetResponse.logStartOffset() : Constant.DEFAULT_NEW_OFFSET,
@@ -104,6 +108,31 @@ public record ProduceResponseV11(
         return new ProduceResponseV11(responseList, Duration.ZERO);
     }
 
+    /**
+     * @return whether the partition exists, a batch for an unknown one being answered with an error, or dropped for acks=0
+     */
+    private static boolean isKnownPartition(UUID topicId, int partitionIndex) {
+        List<Record.Partition> partitionRecordList = Kafka.getPartitionListByTopicId(topicId);
+        if (partitionRecordList == null) {
+            return false;
+        }
+        for (Record.Partition partitionRecord : partitionRecordList) {
+            if (Objects.equals(partitionRecord.id(), partitionIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static ProduceResponseV11 deserialize(DataInput dataInput) {
+        List<Response> responses = dataInput.readCompactArray(Response::deserialize);
+        Duration throttleTime = Duration.ofMillis(dataInput.readSignedInt());
+
+        dataInput.skipEmptyTaggedFieldArray();
+
+        return new ProduceResponseV11(responses, throttleTime);
+    }
+
     @Override
     public void serialize(DataOutput dataOutput) {
         dataOutput.writeCompactArray(responses, Response::serialize);
@@ -112,10 +141,32 @@ public record ProduceResponseV11(
         dataOutput.skipEmptyTaggedFieldArray();
     }
 
+    @Override
+    public ErrorCode firstErrorCode() {
+        for (Response response : responses) {
+            for (Partition partition : response.partitions()) {
+                if (partition.errorCode() != ErrorCode.NONE) {
+                    return partition.errorCode();
+                }
+            }
+        }
+        return ErrorCode.NONE;
+    }
+
     public record Response(
             String name,
             List<Partition> partitions
     ) implements ResponseBody {
+
+        public static Response deserialize(DataInput dataInput) {
+            String name = dataInput.readCompactString();
+            List<Partition> partitions = dataInput.readCompactArray(Partition::deserialize);
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new Response(name, partitions);
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeCompactString(name);
@@ -135,6 +186,20 @@ public record ProduceResponseV11(
             String errorMessage
     ) implements ResponseBody {
 
+        public static Partition deserialize(DataInput dataInput) {
+            int index = dataInput.readSignedInt();
+            ErrorCode errorCode = ErrorCode.of(dataInput.readSignedShort());
+            long baseOffset = dataInput.readSignedLong();
+            long logAppendTimeMs = dataInput.readSignedLong();
+            long logStartOffset = dataInput.readSignedLong();
+            List<RecordError> recordErrors = dataInput.readCompactArray(RecordError::deserialize);
+            String errorMessage = dataInput.readCompactString();
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new Partition(index, errorCode, baseOffset, logAppendTimeMs, logStartOffset, recordErrors, errorMessage);
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeInt(index);
@@ -154,6 +219,15 @@ public record ProduceResponseV11(
             String batchIndexErrorMessage
     ) implements ResponseBody {
 
+        public static RecordError deserialize(DataInput dataInput) {
+            int batchIndex = dataInput.readSignedInt();
+            String batchIndexErrorMessage = dataInput.readString();
+
+            dataInput.skipEmptyTaggedFieldArray();
+
+            return new RecordError(batchIndex, batchIndexErrorMessage);
+        }
+
         @Override
         public void serialize(DataOutput dataOutput) {
             dataOutput.writeInt(batchIndex);
@@ -3,8 +3,12 @@ package enums;
 public enum ErrorCode {
     NONE(0),
     UNKNOWN_SERVER_ERROR(-1),
+    OFFSET_OUT_OF_RANGE(1),
+    CORRUPT_MESSAGE(2),
     UNKNOWN_TOPIC_OR_PARTITION(3),
     UNSUPPORTED_VERSION(35),
+    FETCH_SESSION_ID_NOT_FOUND(70),
+    INVALID_FETCH_SESSION_EPOCH(71),
     UNKNOWN_TOPIC_ID(100);
 
     private final short value;
@@ -16,4 +20,13 @@ public enum ErrorCode {
     public short getValue() {
         return value;
     }
+
+    public static ErrorCode of(short value) {
+        for (ErrorCode errorCode : values()) {
+            if (errorCode.value == value) {
+                return errorCode;
+            }
+        }
+        return UNKNOWN_SERVER_ERROR;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package exception;
+
+import java.io.IOException;
+
+/**
+ * Signals that a record batch failed validation, so it is refused rather than written to the log
+ */
+public class CorruptRecordException extends IOException {
+
+    public CorruptRecordException(String message) {
+        super(message);
+    }
+}
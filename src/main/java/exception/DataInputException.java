@@ -0,0 +1,19 @@
+package exception;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Signals that a field could not be decoded because the underlying stream failed or ended before the field was
+ * complete, instead of handing back a made-up value
+ */
+public class DataInputException extends RuntimeException {
+
+    public DataInputException(IOException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    public boolean isEndOfStream() {
+        return getCause() instanceof EOFException;
+    }
+}
@@ -1,7 +1,5 @@
 package io;
 
-import util.GeneralUtil;
-
 import java.nio.ByteBuffer;
 
 public class BufferDataInputStream implements DataInput {
@@ -12,11 +10,22 @@ public class BufferDataInputStream implements DataInput {
         this.byteBuffer = byteBuffer;
     }
 
+    /**
+     * Return a read-only view of the next n bytes instead of copying them, the view is only valid as long as the
+     * underlying buffer is not reused
+     */
     @Override
     public ByteBuffer readNBytes(int n) {
-        byte[] bytes = new byte[n];
-        GeneralUtil.tryCatch(() -> getByteBuffer().get(bytes));
-        return ByteBuffer.wrap(bytes);
+        ByteBuffer slice = getByteBuffer().slice(getByteBuffer().position(), n).asReadOnlyBuffer();
+        getByteBuffer().position(getByteBuffer().position() + n);
+        return slice;
+    }
+
+    @Override
+    public void readFully(ByteBuffer byteBuffer) {
+        int length = byteBuffer.remaining();
+        byteBuffer.put(getByteBuffer().slice(getByteBuffer().position(), length));
+        getByteBuffer().position(getByteBuffer().position() + length);
     }
 
     @Override
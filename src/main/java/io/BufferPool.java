@@ -0,0 +1,163 @@
+package io;
+
+import constant.Constant;
+
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of request frame buffers grouped in power-of-two size classes, from BUFFER_POOL_MIN_BUFFER_BYTES
+ * up to buffer.pool.max.buffer.bytes. Each size class keeps at most its share of buffer.pool.max.bytes;
+ * larger frames and releases beyond that share fall back to plain allocation and garbage collection.
+ * Buffers are heap or direct depending on buffer.pool.direct.
+ */
+public class BufferPool implements BufferPoolMXBean {
+
+    private final boolean isDirect;
+    private final int minSizeClassShift;
+    private final Queue<ByteBuffer>[] freeBuffers;
+    private final AtomicInteger[] freeBufferCounts;
+    private final int[] maxFreeBufferCounts;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder unpooledCount = new LongAdder();
+    private final LongAdder releaseCount = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(boolean isDirect, long maxPooledBytes, int maxBufferBytes) {
+        this.isDirect = isDirect;
+        this.minSizeClassShift = Integer.numberOfTrailingZeros(Constant.BUFFER_POOL_MIN_BUFFER_BYTES);
+        int maxSizeClassShift = 31 - Integer.numberOfLeadingZeros(Math.max(maxBufferBytes, Constant.BUFFER_POOL_MIN_BUFFER_BYTES));
+        int sizeClassCount = maxSizeClassShift - minSizeClassShift + 1;
+
+        this.freeBuffers = new Queue[sizeClassCount];
+        this.freeBufferCounts = new AtomicInteger[sizeClassCount];
+        this.maxFreeBufferCounts = new int[sizeClassCount];
+        for (int sizeClass = 0; sizeClass < sizeClassCount; sizeClass++) {
+            freeBuffers[sizeClass] = new ConcurrentLinkedQueue<>();
+            freeBufferCounts[sizeClass] = new AtomicInteger();
+            maxFreeBufferCounts[sizeClass] = (int) Math.max(1, maxPooledBytes / sizeClassCount / bufferBytes(sizeClass));
+        }
+    }
+
+    public static BufferPool of(Properties properties) {
+        boolean isDirect = Boolean.parseBoolean(properties.getProperty(
+                Constant.BUFFER_POOL_DIRECT,
+                String.valueOf(Constant.DEFAULT_BUFFER_POOL_DIRECT)
+        ).trim());
+        long maxPooledBytes = Long.parseLong(properties.getProperty(
+                Constant.BUFFER_POOL_MAX_BYTES,
+                String.valueOf(Constant.DEFAULT_BUFFER_POOL_MAX_BYTES)
+        ).trim());
+        int maxBufferBytes = Integer.parseInt(properties.getProperty(
+                Constant.BUFFER_POOL_MAX_BUFFER_BYTES,
+                String.valueOf(Constant.DEFAULT_BUFFER_POOL_MAX_BUFFER_BYTES)
+        ).trim());
+        return new BufferPool(isDirect, maxPooledBytes, maxBufferBytes);
+    }
+
+    public static BufferPool defaults() {
+        return of(new Properties());
+    }
+
+    /**
+     * @return a buffer positioned at 0 with its limit set to size, to be given back with {@link #release}
+     */
+    public ByteBuffer acquire(int size) {
+        int sizeClass = sizeClassOf(size);
+        if (sizeClass >= freeBuffers.length) {
+            unpooledCount.increment();
+            return allocate(size);
+        }
+        ByteBuffer byteBuffer = freeBuffers[sizeClass].poll();
+        if (byteBuffer == null) {
+            missCount.increment();
+            byteBuffer = allocate(bufferBytes(sizeClass));
+        } else {
+            hitCount.increment();
+            freeBufferCounts[sizeClass].decrementAndGet();
+        }
+        return byteBuffer.clear().limit(size);
+    }
+
+    /**
+     * Give back a buffer obtained from {@link #acquire}, it must not be used afterwards
+     */
+    public void release(ByteBuffer byteBuffer) {
+        if (byteBuffer == null) {
+            return;
+        }
+        releaseCount.increment();
+        int capacity = byteBuffer.capacity();
+        int sizeClass = sizeClassOf(capacity);
+        if (sizeClass >= freeBuffers.length || bufferBytes(sizeClass) != capacity || byteBuffer.isDirect() != isDirect) {
+            return;
+        }
+        if (freeBufferCounts[sizeClass].incrementAndGet() > maxFreeBufferCounts[sizeClass]) {
+            freeBufferCounts[sizeClass].decrementAndGet();
+            return;
+        }
+        freeBuffers[sizeClass].offer(byteBuffer);
+    }
+
+    private int sizeClassOf(int size) {
+        if (size <= Constant.BUFFER_POOL_MIN_BUFFER_BYTES) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - minSizeClassShift;
+    }
+
+    private int bufferBytes(int sizeClass) {
+        return 1 << (sizeClass + minSizeClassShift);
+    }
+
+    private ByteBuffer allocate(int size) {
+        return isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    /**
+     * @return the share of acquisitions served from the pool, frames above the largest size class included
+     */
+    @Override
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long acquisitions = hits + missCount.sum() + unpooledCount.sum();
+        return acquisitions == 0 ? 0 : (double) hits / acquisitions;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getUnpooledCount() {
+        return unpooledCount.sum();
+    }
+
+    @Override
+    public long getReleaseCount() {
+        return releaseCount.sum();
+    }
+
+    @Override
+    public boolean isDirect() {
+        return isDirect;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool[direct=%s, hits=%s, misses=%s, unpooled=%s, releases=%s, hitRate=%.3f]".formatted(
+                isDirect, getHitCount(), getMissCount(), getUnpooledCount(), getReleaseCount(), getHitRate());
+    }
+}
@@ -0,0 +1,19 @@
+package io;
+
+/**
+ * Management view of a buffer pool
+ */
+public interface BufferPoolMXBean {
+
+    double getHitRate();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    long getUnpooledCount();
+
+    long getReleaseCount();
+
+    boolean isDirect();
+}
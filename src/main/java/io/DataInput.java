@@ -9,6 +9,11 @@ public interface DataInput {
 
     ByteBuffer readNBytes(int n);
 
+    /**
+     * Fill the remaining bytes of the given buffer
+     */
+    void readFully(ByteBuffer byteBuffer);
+
     byte peekByte();
 
     byte readSignedByte();
@@ -101,7 +106,13 @@ public interface DataInput {
         if (byteBuffer == null) {
             return null;
         }
-        return new String(byteBuffer.array(), byteBuffer.arrayOffset(), byteBuffer.limit(), StandardCharsets.UTF_8);
+        if (byteBuffer.hasArray()) {
+            return new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining(), StandardCharsets.UTF_8);
+        }
+        // read-only or direct buffers do not expose their array
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(byteBuffer.position(), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
     }
 
     private <T> List<T> readArray0(Function<DataInput, T> deserializer, int length) {
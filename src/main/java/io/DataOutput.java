@@ -1,5 +1,6 @@
 package io;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
@@ -17,6 +18,8 @@ public interface DataOutput {
 
     void writeLong(long l);
 
+    void writeFileRegion(FileRegion fileRegion);
+
     default void writeBoolean(boolean b) {
         writeByte((byte) (b ? 1 : 0));
     }
@@ -39,6 +42,33 @@ public interface DataOutput {
         writeBytes(bytes);
     }
 
+    /**
+     * Write the remaining bytes of the buffer without moving its position
+     */
+    default void writeBytes(ByteBuffer byteBuffer) {
+        byte[] bytes = new byte[byteBuffer.remaining()];
+        byteBuffer.get(byteBuffer.position(), bytes);
+        writeBytes(bytes);
+    }
+
+    default void writeCompactBytes(ByteBuffer byteBuffer) {
+        if (byteBuffer == null) {
+            writeUnsignedVarInt(0L);
+            return;
+        }
+        writeUnsignedVarInt(byteBuffer.remaining() + 1);
+        writeBytes(byteBuffer);
+    }
+
+    default void writeCompactRecords(FileRegion fileRegion) {
+        if (fileRegion == null) {
+            writeUnsignedVarInt(0L);
+            return;
+        }
+        writeUnsignedVarInt(fileRegion.size() + 1);
+        writeFileRegion(fileRegion);
+    }
+
     default void writeString(String s) {
         if (s == null) {
             writeShort((short) -1);
@@ -51,11 +81,11 @@ public interface DataOutput {
 
     default void writeCompactString(String s) {
         if (s == null) {
-            writeShort((short) 0);
+            writeUnsignedVarInt(0L);
             return;
         }
         byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
-        writeShort((short) (bytes.length+1));
+        writeUnsignedVarInt(bytes.length + 1);
         writeBytes(bytes);
     }
 
@@ -0,0 +1,28 @@
+package io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A reference to size bytes of a file starting at position, sent with {@link FileChannel#transferTo}
+ * so that the bytes go from the page cache to the socket without being copied on-heap
+ */
+public record FileRegion(
+        FileChannel fileChannel,
+        long position,
+        long size
+) {
+
+    /**
+     * @return the number of bytes transferred, starting at the given offset within the region
+     */
+    public long transferTo(WritableByteChannel target, long offset) throws IOException {
+        long transferred = fileChannel.transferTo(position + offset, size - offset, target);
+        if (transferred == 0 && position + offset >= fileChannel.size()) {
+            throw new EOFException("file region ends after the end of the file");
+        }
+        return transferred;
+    }
+}
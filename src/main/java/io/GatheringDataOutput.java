@@ -0,0 +1,142 @@
+package io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Output that serializes framing bytes into a single growable heap buffer while keeping file regions as references.
+ * Each file region remembers the buffer position it was written at, so the buffer is sent as slices around the
+ * regions without any intermediate copy: a response without file regions goes out in a single write call,
+ * length prefix included.
+ * Writing is incremental so that the same instance can be drained by blocking and non-blocking channels.
+ */
+public class GatheringDataOutput implements DataOutput {
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    private final List<FileRegion> fileRegions = new ArrayList<>();
+    private final List<Integer> fileRegionPositions = new ArrayList<>();
+    private long fileRegionsSize;
+    private boolean isFrame;
+
+    private ByteBuffer[] heapParts;
+    private int partIndex;
+    private long partOffset;
+
+    /**
+     * @return an output starting with a 4-byte length prefix, back-patched with the size of what follows before writing
+     */
+    public static GatheringDataOutput ofFrame() {
+        GatheringDataOutput gatheringDataOutput = new GatheringDataOutput();
+        gatheringDataOutput.writeInt(0);
+        gatheringDataOutput.isFrame = Boolean.TRUE;
+        return gatheringDataOutput;
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) {
+        ensureRemaining(bytes.length).put(bytes);
+    }
+
+    @Override
+    public void writeBytes(ByteBuffer byteBuffer) {
+        ensureRemaining(byteBuffer.remaining()).put(byteBuffer.duplicate());
+    }
+
+    @Override
+    public void writeByte(byte b) {
+        ensureRemaining(Byte.BYTES).put(b);
+    }
+
+    @Override
+    public void writeShort(short s) {
+        ensureRemaining(Short.BYTES).putShort(s);
+    }
+
+    @Override
+    public void writeInt(int i) {
+        ensureRemaining(Integer.BYTES).putInt(i);
+    }
+
+    @Override
+    public void writeLong(long l) {
+        ensureRemaining(Long.BYTES).putLong(l);
+    }
+
+    @Override
+    public void writeFileRegion(FileRegion fileRegion) {
+        fileRegions.add(fileRegion);
+        fileRegionPositions.add(buffer.position());
+        fileRegionsSize += fileRegion.size();
+    }
+
+    /**
+     * @return the total number of bytes written so far, heap bytes and file regions included
+     */
+    public long size() {
+        return buffer.position() + fileRegionsSize;
+    }
+
+    /**
+     * Write as many pending bytes as the channel accepts. Parts alternate between heap slices and file regions:
+     * heapParts[0], fileRegions[0], heapParts[1], ..., heapParts[n].
+     *
+     * @return true when every part has been written
+     */
+    public boolean writeTo(WritableByteChannel channel) throws IOException {
+        if (heapParts == null) {
+            heapParts = sliceHeapParts();
+        }
+        int partCount = heapParts.length + fileRegions.size();
+        while (partIndex < partCount) {
+            if (partIndex % 2 == 0) {
+                ByteBuffer heapPart = heapParts[partIndex / 2];
+                if (heapPart.hasRemaining()) {
+                    channel.write(heapPart);
+                }
+                if (heapPart.hasRemaining()) {
+                    return false;
+                }
+            } else {
+                FileRegion fileRegion = fileRegions.get(partIndex / 2);
+                if (partOffset < fileRegion.size()) {
+                    partOffset += fileRegion.transferTo(channel, partOffset);
+                }
+                if (partOffset < fileRegion.size()) {
+                    return false;
+                }
+                partOffset = 0;
+            }
+            partIndex++;
+        }
+        return true;
+    }
+
+    private ByteBuffer[] sliceHeapParts() {
+        if (isFrame) {
+            buffer.putInt(0, (int) (size() - Integer.BYTES));
+        }
+        ByteBuffer[] slices = new ByteBuffer[fileRegions.size() + 1];
+        int start = 0;
+        for (int i = 0; i < slices.length; i++) {
+            int end = i < fileRegionPositions.size() ? fileRegionPositions.get(i) : buffer.position();
+            slices[i] = buffer.slice(start, end - start);
+            start = end;
+        }
+        return slices;
+    }
+
+    private ByteBuffer ensureRemaining(int length) {
+        if (buffer.remaining() < length) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + length);
+            ByteBuffer grownBuffer = ByteBuffer.allocate(capacity);
+            grownBuffer.put(buffer.flip());
+            buffer = grownBuffer;
+        }
+        return buffer;
+    }
+}
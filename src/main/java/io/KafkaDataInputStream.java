@@ -1,14 +1,20 @@
 package io;
 
-import util.GeneralUtil;
+import exception.DataInputException;
 
 import java.io.DataInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.Optional;
 
+/**
+ * Primitive reads go straight to the DataInputStream so they neither box nor capture a lambda, a stream that fails
+ * or ends in the middle of a field raises a DataInputException
+ */
 public class KafkaDataInputStream implements DataInput {
 
+    private static final int READ_CHUNK_SIZE = 8192;
+
     private final DataInputStream dataInputStream;
 
     public KafkaDataInputStream(InputStream inputStream) {
@@ -17,39 +23,83 @@ public class KafkaDataInputStream implements DataInput {
 
     @Override
     public ByteBuffer readNBytes(int n) {
-        return GeneralUtil.tryCatch(() -> ByteBuffer.wrap(getDataInputStream().readNBytes(n)));
+        byte[] bytes = new byte[n];
+        try {
+            getDataInputStream().readFully(bytes);
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    @Override
+    public void readFully(ByteBuffer byteBuffer) {
+        try {
+            if (byteBuffer.hasArray()) {
+                getDataInputStream().readFully(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), byteBuffer.remaining());
+                byteBuffer.position(byteBuffer.limit());
+                return;
+            }
+            byte[] chunk = new byte[Math.min(byteBuffer.remaining(), READ_CHUNK_SIZE)];
+            while (byteBuffer.hasRemaining()) {
+                int length = Math.min(byteBuffer.remaining(), chunk.length);
+                getDataInputStream().readFully(chunk, 0, length);
+                byteBuffer.put(chunk, 0, length);
+            }
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
+    /**
+     * Requires an input stream supporting mark, such as a BufferedInputStream
+     */
     @Override
     public byte peekByte() {
-        getDataInputStream().mark(1);
-        Byte value = GeneralUtil.tryCatch(dataInputStream::readByte);
-        GeneralUtil.tryCatch(dataInputStream::reset);
-        return Optional.ofNullable(value).orElse((byte) -1);
+        try {
+            getDataInputStream().mark(1);
+            byte value = getDataInputStream().readByte();
+            getDataInputStream().reset();
+            return value;
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
     @Override
     public byte readSignedByte() {
-        Byte value = GeneralUtil.tryCatch(dataInputStream::readByte);
-        return Optional.ofNullable(value).orElse((byte) -1);
+        try {
+            return getDataInputStream().readByte();
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
     @Override
     public short readSignedShort() {
-        Short value = GeneralUtil.tryCatch(dataInputStream::readShort);
-        return Optional.ofNullable(value).orElse((short) -1);
+        try {
+            return getDataInputStream().readShort();
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
     @Override
     public int readSignedInt() {
-        Integer value = GeneralUtil.tryCatch(dataInputStream::readInt);
-        return Optional.ofNullable(value).orElse(-1);
+        try {
+            return getDataInputStream().readInt();
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
     @Override
     public long readSignedLong() {
-        Long value = GeneralUtil.tryCatch(dataInputStream::readLong);
-        return Optional.ofNullable(value).orElse((long) -1);
+        try {
+            return getDataInputStream().readLong();
+        } catch (IOException e) {
+            throw new DataInputException(e);
+        }
     }
 
     private DataInputStream getDataInputStream() {
@@ -2,15 +2,25 @@ package io;
 
 import util.GeneralUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 public class KafkaDataOutputStream implements DataOutput {
 
     private final DataOutputStream dataOutputStream;
 
     public KafkaDataOutputStream(OutputStream outputStream) {
-        this.dataOutputStream = new DataOutputStream(outputStream);
+        this.dataOutputStream = new DataOutputStream(new BufferedOutputStream(outputStream));
+    }
+
+    /**
+     * Push buffered bytes to the underlying stream, primitives being buffered so that they do not each become a write call
+     */
+    public void flush() {
+        GeneralUtil.tryCatch(() -> getDataOutputStream().flush());
     }
 
     @Override
@@ -38,6 +48,18 @@ public class KafkaDataOutputStream implements DataOutput {
         GeneralUtil.tryCatch(() -> getDataOutputStream().writeLong(l));
     }
 
+    @Override
+    public void writeFileRegion(FileRegion fileRegion) {
+        WritableByteChannel channel = Channels.newChannel(getDataOutputStream());
+        GeneralUtil.tryCatch(() -> {
+            getDataOutputStream().flush();
+            long offset = 0;
+            while (offset < fileRegion.size()) {
+                offset += fileRegion.transferTo(channel, offset);
+            }
+        });
+    }
+
     private DataOutputStream getDataOutputStream() {
         return dataOutputStream;
     }
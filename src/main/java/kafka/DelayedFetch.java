@@ -0,0 +1,40 @@
+package kafka;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fetch which found fewer than minBytes, waiting for appends to the partitions it reads to make up the difference
+ */
+public class DelayedFetch {
+
+    private final int minBytes;
+    private final AtomicLong accumulatedBytes;
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * @param readBytes the bytes the fetch found when it was first read
+     */
+    public DelayedFetch(int minBytes, long readBytes) {
+        this.minBytes = minBytes;
+        this.accumulatedBytes = new AtomicLong(readBytes);
+    }
+
+    /**
+     * Count bytes appended to one of the watched partitions, completing the fetch once minBytes are available
+     */
+    void onAppend(long appendedBytes) {
+        if (accumulatedBytes.addAndGet(appendedBytes) >= minBytes) {
+            completed.countDown();
+        }
+    }
+
+    /**
+     * Park the calling thread until minBytes are available or maxWaitMs expires, a virtual handler thread being
+     * unmounted from its carrier meanwhile
+     */
+    void await(long maxWaitMs) throws InterruptedException {
+        completed.await(maxWaitMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,40 @@
+package kafka;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The delayed fetches watching each partition, so that an idle consumer waits for data on the broker rather than
+ * polling it in a loop. A partition nobody waits on costs its appends a single map lookup.
+ */
+public class FetchPurgatory {
+
+    private final Map<TopicPartition, Set<DelayedFetch>> watchersMap = new ConcurrentHashMap<>();
+
+    public void watch(DelayedFetch delayedFetch, Collection<TopicPartition> topicPartitions) {
+        for (TopicPartition topicPartition : topicPartitions) {
+            watchersMap.computeIfAbsent(topicPartition, key -> ConcurrentHashMap.newKeySet()).add(delayedFetch);
+        }
+    }
+
+    public void unwatch(DelayedFetch delayedFetch, Collection<TopicPartition> topicPartitions) {
+        for (TopicPartition topicPartition : topicPartitions) {
+            watchersMap.get(topicPartition).remove(delayedFetch);
+        }
+    }
+
+    /**
+     * Hand the bytes appended to a partition to the fetches watching it
+     */
+    public void checkAndComplete(TopicPartition topicPartition, long appendedBytes) {
+        Set<DelayedFetch> watchers = watchersMap.get(topicPartition);
+        if (watchers == null || watchers.isEmpty()) {
+            return;
+        }
+        for (DelayedFetch delayedFetch : watchers) {
+            delayedFetch.onAppend(appendedBytes);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package kafka;
+
+/**
+ * Which partition of a consumer's fetch is read first, and so gets the response budget first. Each fetch starts
+ * right after the last partition the previous one returned data for, so that the first partitions of a request
+ * cannot starve the others. Kept by the fetch session of the consumer, or by its connection when sessionless.
+ */
+public class FetchRotation {
+
+    private int firstRead;
+
+    /**
+     * @return the index of the partition to read first among partitionCount of them
+     */
+    public synchronized int getFirstRead(int partitionCount) {
+        return partitionCount == 0 ? 0 : Math.floorMod(firstRead, partitionCount);
+    }
+
+    /**
+     * Start the next fetch after the partition at lastServed, the last one that returned data
+     */
+    public synchronized void advancePast(int lastServed) {
+        firstRead = lastServed + 1;
+    }
+}
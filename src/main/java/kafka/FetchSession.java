@@ -0,0 +1,111 @@
+package kafka;
+
+import constant.Constant;
+import domain.message.request.FetchRequestV16;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The partitions fetched by a consumer, kept between its fetches (KIP-227) so that an incremental fetch only lists
+ * the partitions whose fetch offset or max bytes changed, and its response only carries the partitions with new
+ * data, an error, or a new log start offset. Each fetch of a session carries the epoch following the previous one.
+ */
+public class FetchSession {
+
+    private final int sessionId;
+    private int nextEpoch = Constant.INITIAL_FETCH_SESSION_EPOCH + 1;
+    // insertion ordered, partitions are read in the order the consumer first listed them
+    private final Map<UUID, Map<Integer, CachedPartition>> cachedPartitionsMap = new LinkedHashMap<>();
+    private final FetchRotation fetchRotation = new FetchRotation();
+
+    public FetchSession(int sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /**
+     * @return false when epoch is not the one following the previous fetch of the session, e.g. a retried fetch
+     */
+    public synchronized boolean tryAdvanceEpoch(int epoch) {
+        if (epoch != nextEpoch) {
+            return false;
+        }
+        nextEpoch = epoch == Integer.MAX_VALUE ? Constant.INITIAL_FETCH_SESSION_EPOCH + 1 : epoch + 1;
+        return true;
+    }
+
+    /**
+     * Add or update the listed partitions, then remove the forgotten ones
+     *
+     * @return every partition of the session, grouped by topic
+     */
+    public synchronized List<FetchRequestV16.Topic> update(List<FetchRequestV16.Topic> topics, List<FetchRequestV16.ForgottenTopic> forgottenTopics) {
+        for (FetchRequestV16.Topic topic : topics) {
+            Map<Integer, CachedPartition> cachedPartitions = cachedPartitionsMap.computeIfAbsent(topic.topicUuid(), key -> new LinkedHashMap<>());
+            for (FetchRequestV16.Partition partition : topic.partitions()) {
+                CachedPartition cachedPartition = cachedPartitions.get(partition.partition());
+                if (cachedPartition == null) {
+                    cachedPartitions.put(partition.partition(), new CachedPartition(partition));
+                } else {
+                    cachedPartition.partition = partition;
+                }
+            }
+        }
+        for (FetchRequestV16.ForgottenTopic forgottenTopic : forgottenTopics) {
+            Map<Integer, CachedPartition> cachedPartitions = cachedPartitionsMap.get(forgottenTopic.topicId());
+            if (cachedPartitions == null) {
+                continue;
+            }
+            forgottenTopic.partitions().forEach(cachedPartitions::remove);
+            if (cachedPartitions.isEmpty()) {
+                cachedPartitionsMap.remove(forgottenTopic.topicId());
+            }
+        }
+
+        List<FetchRequestV16.Topic> sessionTopics = new ArrayList<>(cachedPartitionsMap.size());
+        for (Map.Entry<UUID, Map<Integer, CachedPartition>> entry : cachedPartitionsMap.entrySet()) {
+            List<FetchRequestV16.Partition> partitions = new ArrayList<>(entry.getValue().size());
+            for (CachedPartition cachedPartition : entry.getValue().values()) {
+                partitions.add(cachedPartition.partition);
+            }
+            sessionTopics.add(new FetchRequestV16.Topic(entry.getKey(), partitions));
+        }
+        return sessionTopics;
+    }
+
+    /**
+     * Remember the log start offset sent for a partition
+     *
+     * @return whether it differs from the one previously sent, which the consumer must then be told about
+     */
+    public synchronized boolean updateLogStartOffset(UUID topicId, int partitionIndex, long logStartOffset) {
+        Map<Integer, CachedPartition> cachedPartitions = cachedPartitionsMap.get(topicId);
+        CachedPartition cachedPartition = cachedPartitions == null ? null : cachedPartitions.get(partitionIndex);
+        if (cachedPartition == null || cachedPartition.logStartOffset == logStartOffset) {
+            return false;
+        }
+        cachedPartition.logStartOffset = logStartOffset;
+        return true;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public FetchRotation getFetchRotation() {
+        return fetchRotation;
+    }
+
+    private static class CachedPartition {
+
+        private FetchRequestV16.Partition partition;
+        private long logStartOffset = Constant.DEFAULT_LOG_START_OFFSET_V2;
+
+        private CachedPartition(FetchRequestV16.Partition partition) {
+            this.partition = partition;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package kafka;
+
+import constant.Constant;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The fetch sessions of the broker, up to max.incremental.fetch.session.cache.slots of them, the least recently
+ * used session being evicted to make room for a new one. A consumer whose session was evicted gets
+ * FETCH_SESSION_ID_NOT_FOUND on its next incremental fetch and starts over with a full one.
+ */
+public class FetchSessionCache {
+
+    private final int maxSlots;
+    private final Map<Integer, FetchSession> sessionMap;
+
+    public FetchSessionCache(int maxSlots) {
+        this.maxSlots = maxSlots;
+        this.sessionMap = new LinkedHashMap<>(16, 0.75f, Boolean.TRUE) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FetchSession> eldest) {
+                return size() > FetchSessionCache.this.maxSlots;
+            }
+        };
+    }
+
+    public static FetchSessionCache of(Properties properties) {
+        int maxSlots = Integer.parseInt(properties.getProperty(
+                Constant.MAX_INCREMENTAL_FETCH_SESSION_CACHE_SLOTS,
+                String.valueOf(Constant.DEFAULT_MAX_INCREMENTAL_FETCH_SESSION_CACHE_SLOTS)
+        ).trim());
+        return new FetchSessionCache(maxSlots);
+    }
+
+    public static FetchSessionCache defaults() {
+        return of(new Properties());
+    }
+
+    /**
+     * @return a new session, or null when sessions are disabled by a cache of 0 slots
+     */
+    public synchronized FetchSession create() {
+        if (maxSlots <= 0) {
+            return null;
+        }
+        int sessionId;
+        do {
+            sessionId = ThreadLocalRandom.current().nextInt(1, Integer.MAX_VALUE);
+        } while (sessionMap.containsKey(sessionId));
+        FetchSession fetchSession = new FetchSession(sessionId);
+        sessionMap.put(sessionId, fetchSession);
+        return fetchSession;
+    }
+
+    /**
+     * @return the session, marked as the most recently used, or null when it does not exist or was evicted
+     */
+    public synchronized FetchSession get(int sessionId) {
+        return sessionMap.get(sessionId);
+    }
+
+    public synchronized void remove(int sessionId) {
+        sessionMap.remove(sessionId);
+    }
+
+    public synchronized int size() {
+        return sessionMap.size();
+    }
+}
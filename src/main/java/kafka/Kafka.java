@@ -4,26 +4,42 @@ import constant.Constant;
 import domain.logdata.Batch;
 import domain.logdata.record.Record;
 import domain.message.response.NewOffsetResponse;
+import enums.ErrorCode;
+import exception.CorruptRecordException;
+import exception.DataInputException;
+import io.FileRegion;
 import io.KafkaDataInputStream;
-import io.KafkaDataOutputStream;
+import metrics.LogAppendEvent;
+import metrics.LogReadEvent;
+import metrics.Metrics;
 
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class Kafka {
 
-    private static final Map<UUID, Record.Topic> TOPIC_PER_ID_MAP = new HashMap<>();
-    private static final Map<String, Record.Topic> TOPIC_PER_NAME_MAP = new HashMap<>();
-    private static final Map<UUID, List<Record.Partition>> LIST_PARTITION_PER_TOPIC_ID_MAP = new HashMap<>();
-    private static File LOG_ROOT;
+    // read by every handler thread while load may still be filling them, partition lists are never mutated
+    private static final Map<UUID, Record.Topic> TOPIC_PER_ID_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, Record.Topic> TOPIC_PER_NAME_MAP = new ConcurrentHashMap<>();
+    private static final Map<UUID, List<Record.Partition>> LIST_PARTITION_PER_TOPIC_ID_MAP = new ConcurrentHashMap<>();
+    private static final Map<TopicPartition, PartitionLog> PARTITION_LOG_MAP = new ConcurrentHashMap<>();
+    private static final Map<TopicPartition, Long> RECOVERY_POINT_MAP = new ConcurrentHashMap<>();
+    private static final FetchPurgatory FETCH_PURGATORY = new FetchPurgatory();
+    private static volatile FetchSessionCache FETCH_SESSION_CACHE = FetchSessionCache.defaults();
+    private static volatile MappedFileCache MAPPED_FILE_CACHE = MappedFileCache.defaults();
+    private static volatile File LOG_ROOT;
+    private static volatile LogConfig LOG_CONFIG = LogConfig.defaults();
 
     /**
      * Step 1: Load local appended log files to in-memory data
      */
-    public static void load(File logRoot) {
+    public static void load(File logRoot, LogConfig logConfig) {
         List<Record.Topic> topicList = new ArrayList<>();
         List<Record.Partition> partitionList = new ArrayList<>();
 
@@ -33,6 +49,7 @@ public class Kafka {
         }
         if (LOG_ROOT == null) {
             LOG_ROOT = logRoot;
+            LOG_CONFIG = logConfig;
         }
         File firstLogFile = getLogFile(logRoot, Constant.DEFAULT_CLUSTER_METADATA_TOPIC_NAME, Constant.INITIAL_PARTITION_INDEX);
         if (!firstLogFile.exists()) {
@@ -40,10 +57,9 @@ public class Kafka {
         }
 
         // step 2: read log data from local appended log files
-        try {
-            FileInputStream fileInputStream = new FileInputStream(firstLogFile);
-            KafkaDataInputStream kafkaDataInputStream = new KafkaDataInputStream(fileInputStream);
-            while (fileInputStream.available() != Constant.EOF_INDICATOR) {
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(firstLogFile))) {
+            KafkaDataInputStream kafkaDataInputStream = new KafkaDataInputStream(inputStream);
+            while (inputStream.available() != Constant.EOF_INDICATOR) {
                 Batch batch = Batch.deserialize(kafkaDataInputStream);
                 if (batch.records() == null) {
                     break;
@@ -59,7 +75,7 @@ public class Kafka {
                     }
                 }
             }
-        } catch (IOException e) {
+        } catch (IOException | DataInputException e) {
             System.out.printf("failed to read log file data due to %s%n", e.getMessage());
         }
 
@@ -76,15 +92,29 @@ public class Kafka {
 
         Map<UUID, List<Record.Partition>> partitionPerTopicIdMap = partitionList
                 .stream()
-                .collect(Collectors.groupingBy(Record.Partition::topicId));
+                .collect(Collectors.groupingBy(Record.Partition::topicId, Collectors.toUnmodifiableList()));
         LIST_PARTITION_PER_TOPIC_ID_MAP.putAll(partitionPerTopicIdMap);
     }
 
-    private static File getLogFile(String topicName, int partitionIndex) {
+    /**
+     * Open the log of every partition of the loaded topics on log.num.recovery.threads.per.data.dir threads,
+     * validating each from its checkpointed recovery point and truncating the torn tail a crash may have left
+     */
+    public static void recover() {
         if (LOG_ROOT == null) {
-            return null;
+            return;
+        }
+        long startMs = System.currentTimeMillis();
+        RECOVERY_POINT_MAP.putAll(new RecoveryPointCheckpoint(LOG_ROOT).read());
+        try (ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, LOG_CONFIG.numRecoveryThreads()))) {
+            for (Record.Topic topic : TOPIC_PER_ID_MAP.values()) {
+                List<Record.Partition> partitionList = LIST_PARTITION_PER_TOPIC_ID_MAP.getOrDefault(topic.uuid(), Collections.emptyList());
+                for (Record.Partition partition : partitionList) {
+                    executorService.execute(() -> getPartitionLog(topic.name(), partition.id()));
+                }
+            }
         }
-        return getLogFile(LOG_ROOT, topicName, partitionIndex);
+        System.out.printf("recovered %s partition logs in %s ms%n", PARTITION_LOG_MAP.size(), System.currentTimeMillis() - startMs);
     }
 
     private static File getLogFile(File logRoot, String topicName, int partitionIndex) {
@@ -93,6 +123,7 @@ public class Kafka {
     }
 
 
+
     /**
      * Step 2: Query in-memory appended log data
      */
@@ -111,71 +142,184 @@ public class Kafka {
 
     /**
      * Step 3: Append data to local log files
+     *
+     * @param isDurable whether the data must be synced to disk before returning
+     * @return the base offset or the reason the batch was not appended, null when the partition has no log
      */
-    public static NewOffsetResponse appendBatchData(String topicName, int partitionIndex, ByteBuffer recordData) {
-        File logFile = getLogFile(topicName, partitionIndex);
-        if (logFile == null) {
+    public static NewOffsetResponse appendBatchData(String topicName, int partitionIndex, ByteBuffer recordData, boolean isDurable) {
+        PartitionLog partitionLog = getPartitionLog(topicName, partitionIndex);
+        if (partitionLog == null) {
             return null;
         }
-        logFile.getParentFile().mkdirs();
-
-        List<Batch> batchList = readBatchData(topicName, partitionIndex);
-        OptionalLong optCurrentEndOffset = batchList.stream().mapToLong(Batch::getEndOffset).max();
-        Long nextOffset = optCurrentEndOffset.isPresent() ? optCurrentEndOffset.getAsLong() + Constant.NEXXT_OFFSET_INCREMENT : 0;
 
+        Long nextOffset = null;
+        ErrorCode errorCode = ErrorCode.NONE;
+        LogAppendEvent logAppendEvent = new LogAppendEvent();
+        logAppendEvent.begin();
+        int batchSize = recordData.remaining();
         try {
-            // read
-            ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(recordData.array(), recordData.arrayOffset(), recordData.remaining());
-            KafkaDataInputStream kafkaDataInputStream = new KafkaDataInputStream(byteArrayInputStream);
-            kafkaDataInputStream.readSignedLong(); /* skip nextOffset */
-
-            // write
-            FileOutputStream fileOutputStream = new FileOutputStream(logFile, Boolean.TRUE);
-            KafkaDataOutputStream kafkaDataOutputStream = new KafkaDataOutputStream(fileOutputStream);
-            kafkaDataOutputStream.writeLong(nextOffset);
-            byteArrayInputStream.transferTo(fileOutputStream); /* transfer byteArrayInputStream to fileOutputStream */
+            nextOffset = partitionLog.append(recordData, isDurable);
+            Metrics.getTopicMetrics(topicName).recordProduceBytes(batchSize);
+            FETCH_PURGATORY.checkAndComplete(partitionLog.getTopicPartition(), batchSize);
+        } catch (CorruptRecordException e) {
+            System.out.printf("rejected batch for %s-%s due to %s%n", topicName, partitionIndex, e.getMessage());
+            errorCode = ErrorCode.CORRUPT_MESSAGE;
         } catch (IOException e) {
-            System.out.printf("failed to read log file data due to %s%n", e.getMessage());
+            System.out.printf("failed to append log file data due to %s%n", e.getMessage());
+            errorCode = ErrorCode.UNKNOWN_SERVER_ERROR;
+        }
+        logAppendEvent.end();
+        if (logAppendEvent.shouldCommit()) {
+            logAppendEvent.topic = topicName;
+            logAppendEvent.partition = partitionIndex;
+            logAppendEvent.baseOffset = nextOffset == null ? Constant.DEFAULT_BASE_OFFSET : nextOffset;
+            logAppendEvent.bytes = batchSize;
+            logAppendEvent.commit();
         }
 
-        return new NewOffsetResponse(nextOffset, Constant.DEFAULT_LOG_START_OFFSET);
+        return new NewOffsetResponse(errorCode, nextOffset == null ? Constant.DEFAULT_NEW_OFFSET : nextOffset, partitionLog.getLogStartOffset());
+    }
+
+    private static PartitionLog getPartitionLog(String topicName, int partitionIndex) {
+        if (LOG_ROOT == null) {
+            return null;
+        }
+        // plain lookup first, computeIfAbsent may lock the bin even when the partition is already open
+        TopicPartition topicPartition = new TopicPartition(topicName, partitionIndex);
+        PartitionLog partitionLog = PARTITION_LOG_MAP.get(topicPartition);
+        if (partitionLog != null) {
+            return partitionLog;
+        }
+        return PARTITION_LOG_MAP.computeIfAbsent(
+                topicPartition,
+                key -> PartitionLog.open(LOG_ROOT, key, LOG_CONFIG, RECOVERY_POINT_MAP.getOrDefault(key, Constant.DEFAULT_LOG_START_OFFSET))
+        );
     }
 
 
     /**
      * Step 4: Read data from local appended log files
      */
-    public static byte[] readRawBatchData(String topicName, int partitionIndex) {
-        File logFile = getLogFile(topicName, partitionIndex);
-        if (logFile == null || !logFile.exists()) {
-            return null;
-        }
+    public static long getLogStartOffset(String topicName, int partitionIndex) {
+        PartitionLog partitionLog = getPartitionLog(topicName, partitionIndex);
+        return partitionLog == null ? Constant.DEFAULT_LOG_START_OFFSET : partitionLog.getLogStartOffset();
+    }
+
+    public static long getLogEndOffset(String topicName, int partitionIndex) {
+        PartitionLog partitionLog = getPartitionLog(topicName, partitionIndex);
+        return partitionLog == null ? Constant.DEFAULT_LOG_START_OFFSET : partitionLog.getLogEndOffset();
+    }
+
+    /**
+     * Wait until minBytes were appended to the given partitions, counting the readBytes a fetch already found, or
+     * until maxWaitMs expires.
+     *
+     * @param logEndOffsets the log end offset of each partition taken before the fetch read it, an append racing
+     *                      with the read ending the wait right away rather than being missed
+     * @return whether anything was appended to the partitions since logEndOffsets were taken
+     */
+    public static boolean awaitFetchData(Map<TopicPartition, Long> logEndOffsets, long readBytes, int minBytes, long maxWaitMs) throws InterruptedException {
+        DelayedFetch delayedFetch = new DelayedFetch(minBytes, readBytes);
+        FETCH_PURGATORY.watch(delayedFetch, logEndOffsets.keySet());
         try {
-            FileInputStream fileInputStream = new FileInputStream(logFile);
-            return fileInputStream.readAllBytes();
-        } catch (IOException e) {
-            System.out.printf("failed to read log file data due to %s%n", e.getMessage());
-            return null;
+            if (!hasAppended(logEndOffsets)) {
+                delayedFetch.await(maxWaitMs);
+            }
+        } finally {
+            FETCH_PURGATORY.unwatch(delayedFetch, logEndOffsets.keySet());
+        }
+        return hasAppended(logEndOffsets);
+    }
+
+    private static boolean hasAppended(Map<TopicPartition, Long> logEndOffsets) {
+        for (Map.Entry<TopicPartition, Long> entry : logEndOffsets.entrySet()) {
+            TopicPartition topicPartition = entry.getKey();
+            if (getLogEndOffset(topicPartition.topicName(), topicPartition.partitionIndex()) != entry.getValue()) {
+                return true;
+            }
         }
+        return false;
     }
 
-    public static List<Batch> readBatchData(String topicName, int partitionIndex) {
-        File logFile = getLogFile(topicName, partitionIndex);
-        if (logFile == null || !logFile.exists()) {
+    /**
+     * @return the whole batches from fetchOffset onward fitting in maxBytes, or the first one alone when it does not
+     * fit and isMinOneBatch
+     */
+    public static FileRegion readRawBatchData(String topicName, int partitionIndex, long fetchOffset, long maxBytes, boolean isMinOneBatch) {
+        PartitionLog partitionLog = getPartitionLog(topicName, partitionIndex);
+        if (partitionLog == null) {
             return null;
         }
-        List<Batch> batchList = new ArrayList<>();
+        LogReadEvent logReadEvent = new LogReadEvent();
+        logReadEvent.begin();
+        FileRegion fileRegion = null;
         try {
-            FileInputStream fileInputStream = new FileInputStream(logFile);
-            KafkaDataInputStream kafkaDataInputStream = new KafkaDataInputStream(fileInputStream);
-            while (fileInputStream.available() != Constant.EOF_INDICATOR) {
-                Batch batch = Batch.deserialize(kafkaDataInputStream);
-                batchList.add(batch);
+            fileRegion = partitionLog.read(fetchOffset, maxBytes, isMinOneBatch);
+            if (fileRegion != null) {
+                Metrics.getTopicMetrics(topicName).recordFetchBytes(fileRegion.size());
             }
-            return batchList;
         } catch (IOException e) {
             System.out.printf("failed to read log file data due to %s%n", e.getMessage());
-            return batchList;
         }
+        logReadEvent.end();
+        if (logReadEvent.shouldCommit()) {
+            logReadEvent.topic = topicName;
+            logReadEvent.partition = partitionIndex;
+            logReadEvent.fetchOffset = fetchOffset;
+            logReadEvent.bytes = fileRegion == null ? 0 : fileRegion.size();
+            logReadEvent.commit();
+        }
+        return fileRegion;
+    }
+
+
+    /**
+     * Step 5: Delete log segments past retention in the background
+     */
+    public static void startRetention() {
+        if (LOG_ROOT == null) {
+            return;
+        }
+        new RetentionScheduler(LOG_CONFIG, Kafka::getPartitionLogs).start();
+    }
+
+    /**
+     * Sync sealed segments and checkpoint the recovery point of every partition in the background
+     */
+    public static void startRecoveryPointCheckpoint() {
+        if (LOG_ROOT == null) {
+            return;
+        }
+        new RecoveryPointCheckpointScheduler(LOG_CONFIG, new RecoveryPointCheckpoint(LOG_ROOT), Kafka::getPartitionLogs).start();
+    }
+
+    /**
+     * @return the log of every partition of the loaded topics, opening those not accessed yet
+     */
+    public static List<PartitionLog> getPartitionLogs() {
+        List<PartitionLog> partitionLogList = new ArrayList<>();
+        for (Record.Topic topic : TOPIC_PER_ID_MAP.values()) {
+            List<Record.Partition> partitionList = LIST_PARTITION_PER_TOPIC_ID_MAP.getOrDefault(topic.uuid(), Collections.emptyList());
+            for (Record.Partition partition : partitionList) {
+                partitionLogList.add(getPartitionLog(topic.name(), partition.id()));
+            }
+        }
+        return partitionLogList;
+    }
+
+    public static FetchSessionCache getFETCH_SESSION_CACHE() {
+        return FETCH_SESSION_CACHE;
+    }
+
+    public static void setFetchSessionCache(FetchSessionCache fetchSessionCache) {
+        FETCH_SESSION_CACHE = fetchSessionCache;
+    }
+
+    public static MappedFileCache getMAPPED_FILE_CACHE() {
+        return MAPPED_FILE_CACHE;
+    }
+
+    public static void setMappedFileCache(MappedFileCache mappedFileCache) {
+        MAPPED_FILE_CACHE = mappedFileCache;
     }
 }
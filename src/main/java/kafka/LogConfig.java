@@ -0,0 +1,48 @@
+package kafka;
+
+import constant.Constant;
+
+import java.util.Properties;
+
+/**
+ * Log settings read from the server properties, falling back to the Kafka defaults when a key is absent.
+ * A negative retentionMs or retentionBytes disables the corresponding retention.
+ * Appends are synced to disk once flushIntervalMessages records were written since the last sync, never by default.
+ * Every flushOffsetCheckpointIntervalMs, rolled segments are synced and the offset up to which each partition is on
+ * disk is checkpointed, so that recovery after a crash, run by numRecoveryThreads, only validates the data after it.
+ */
+public record LogConfig(
+        int segmentBytes,
+        long rollMs,
+        long retentionMs,
+        long retentionBytes,
+        long retentionCheckIntervalMs,
+        long fileDeleteDelayMs,
+        long flushIntervalMessages,
+        long flushOffsetCheckpointIntervalMs,
+        int numRecoveryThreads
+) {
+
+    public static LogConfig of(Properties properties) {
+        return new LogConfig(
+                (int) getLong(properties, Constant.LOG_SEGMENT_BYTES, Constant.DEFAULT_LOG_SEGMENT_BYTES),
+                getLong(properties, Constant.LOG_ROLL_MS, Constant.DEFAULT_LOG_ROLL_MS),
+                getLong(properties, Constant.LOG_RETENTION_MS, Constant.DEFAULT_LOG_RETENTION_MS),
+                getLong(properties, Constant.LOG_RETENTION_BYTES, Constant.DEFAULT_LOG_RETENTION_BYTES),
+                getLong(properties, Constant.LOG_RETENTION_CHECK_INTERVAL_MS, Constant.DEFAULT_LOG_RETENTION_CHECK_INTERVAL_MS),
+                getLong(properties, Constant.FILE_DELETE_DELAY_MS, Constant.DEFAULT_FILE_DELETE_DELAY_MS),
+                getLong(properties, Constant.LOG_FLUSH_INTERVAL_MESSAGES, Constant.DEFAULT_LOG_FLUSH_INTERVAL_MESSAGES),
+                getLong(properties, Constant.LOG_FLUSH_OFFSET_CHECKPOINT_INTERVAL_MS, Constant.DEFAULT_LOG_FLUSH_OFFSET_CHECKPOINT_INTERVAL_MS),
+                (int) getLong(properties, Constant.NUM_RECOVERY_THREADS_PER_DATA_DIR, Constant.DEFAULT_NUM_RECOVERY_THREADS_PER_DATA_DIR)
+        );
+    }
+
+    public static LogConfig defaults() {
+        return of(new Properties());
+    }
+
+    private static long getLong(Properties properties, String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+}
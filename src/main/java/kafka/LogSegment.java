@@ -0,0 +1,318 @@
+package kafka;
+
+import constant.Constant;
+import io.FileRegion;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * One log file of a partition holding the batches from its base offset up to the base offset of the next segment,
+ * together with its sparse offset index. Both files are named after the zero-padded base offset.
+ */
+public class LogSegment {
+
+    private final long baseOffset;
+    private final File logFile;
+    private final OffsetIndex offsetIndex;
+    private final long createdMs;
+    private final FileChannel fileChannel;
+    private volatile long size;
+    private long lastIndexedPosition;
+    private volatile boolean isSealed;
+
+    private LogSegment(long baseOffset, File logFile, OffsetIndex offsetIndex, long createdMs, FileChannel fileChannel) throws IOException {
+        this.baseOffset = baseOffset;
+        this.logFile = logFile;
+        this.offsetIndex = offsetIndex;
+        this.createdMs = createdMs;
+        this.fileChannel = fileChannel;
+        this.size = fileChannel.size();
+        OffsetIndex.Entry lastEntry = offsetIndex.lastEntry();
+        this.lastIndexedPosition = lastEntry == null ? 0 : lastEntry.position();
+    }
+
+    /**
+     * Open the segment with the given base offset, creating its log file when it does not exist yet.
+     * The channel stays open for the lifetime of the segment so that file regions handed to responses remain valid.
+     */
+    public static LogSegment open(File partitionDirectory, long baseOffset) throws IOException {
+        partitionDirectory.mkdirs();
+        File logFile = new File(partitionDirectory, String.format(Constant.FORMATTED_LOG_SEGMENT_FILE_NAME, baseOffset));
+        File indexFile = new File(partitionDirectory, String.format(Constant.FORMATTED_INDEX_FILE_NAME, baseOffset));
+        long createdMs = logFile.exists() ? logFile.lastModified() : System.currentTimeMillis();
+        FileChannel fileChannel = FileChannel.open(logFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new LogSegment(baseOffset, logFile, new OffsetIndex(indexFile, baseOffset), createdMs, fileChannel);
+    }
+
+    /**
+     * Append record batches with a single gathering write, overwriting the base offset of each with the offset
+     * assigned by the partition. The new size is only published once the batches are written, and synced when
+     * flush is set, so fetches never see a partially written group.
+     */
+    public synchronized void append(List<PartitionLog.PendingAppend> pendingAppends, boolean flush) throws IOException {
+        // step 1: one base offset slice and one batch body per append, the base offsets sharing a single buffer
+        long position = size;
+        ByteBuffer baseOffsetBuffer = ByteBuffer.allocate(Long.BYTES * pendingAppends.size());
+        ByteBuffer[] buffers = new ByteBuffer[pendingAppends.size() * 2];
+        long groupSize = 0;
+        for (int i = 0; i < pendingAppends.size(); i++) {
+            PartitionLog.PendingAppend pendingAppend = pendingAppends.get(i);
+            ByteBuffer recordData = pendingAppend.getRecordData();
+            buffers[2 * i] = baseOffsetBuffer.putLong(Long.BYTES * i, pendingAppend.getBaseOffset()).slice(Long.BYTES * i, Long.BYTES);
+            buffers[2 * i + 1] = recordData.duplicate().position(recordData.position() + Long.BYTES);
+            groupSize += recordData.remaining();
+        }
+
+        // step 2: write then optionally sync the whole group
+        fileChannel.position(position);
+        long written = 0;
+        while (written < groupSize) {
+            written += fileChannel.write(buffers);
+        }
+        if (flush) {
+            fileChannel.force(false);
+        }
+
+        // step 3: index: one entry every INDEX_INTERVAL_BYTES of log data keeps the index sparse
+        long batchPosition = position;
+        for (PartitionLog.PendingAppend pendingAppend : pendingAppends) {
+            if (batchPosition - lastIndexedPosition >= Constant.INDEX_INTERVAL_BYTES) {
+                offsetIndex.append(pendingAppend.getBaseOffset(), batchPosition);
+                lastIndexedPosition = batchPosition;
+            }
+            batchPosition += pendingAppend.getRecordData().remaining();
+        }
+        size = position + groupSize;
+    }
+
+    /**
+     * @param isMinOneBatch whether to return the first batch even when it alone exceeds maxBytes, so that a consumer
+     *                      cannot get stuck behind a batch larger than its fetch size
+     * @return a region covering the whole batches of this segment from the first one containing fetchOffset onward
+     * that fit in maxBytes, empty when every batch of this segment ends before fetchOffset
+     */
+    public FileRegion read(long fetchOffset, long maxBytes, boolean isMinOneBatch) throws IOException {
+        long endPosition = size;
+        // batch headers of a sealed segment are read from its mapping rather than with a syscall each
+        MappedFileCache.MappedFile mappedFile = isSealed
+                ? Kafka.getMAPPED_FILE_CACHE().acquire(logFile, fileChannel, endPosition)
+                : null;
+        try {
+            MemorySegment mappedLog = mappedFile == null ? null : mappedFile.getMemorySegment();
+
+            // step 1: seek to the closest indexed batch then skip batches ending before fetchOffset
+            long position = offsetIndex.lookup(fetchOffset);
+            position = findBatchPosition(mappedLog, position, endPosition, fetchOffset);
+
+            // step 2: stop at the last batch boundary within maxBytes, unless every remaining batch fits
+            if (endPosition - position > maxBytes) {
+                endPosition = findLimitPosition(mappedLog, position, endPosition, maxBytes, isMinOneBatch);
+            }
+
+            // step 3: reference the batches in between, the bytes are only read when sent, still with a zero-copy
+            // transfer from the page cache to the socket
+            return new FileRegion(fileChannel, position, endPosition - position);
+        } finally {
+            Kafka.getMAPPED_FILE_CACHE().release(mappedFile);
+        }
+    }
+
+    /**
+     * Validate the length, magic and CRC32C of every batch, truncating the log file at the first torn or corrupt
+     * batch, then rebuild the index from the valid batches
+     *
+     * @return whether the log file was truncated
+     */
+    public synchronized boolean recover() throws IOException {
+        offsetIndex.truncate();
+        lastIndexedPosition = 0;
+        long fileSize = fileChannel.size();
+        long position = 0;
+        // mapped for the scan only, the whole segment being read once
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment mappedLog = fileSize == 0 ? MemorySegment.NULL : fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize, arena);
+            CRC32C crc = new CRC32C();
+            while (position + Constant.BATCH_HEADER_SIZE <= fileSize) {
+                ByteBuffer header = mappedLog.asSlice(position, Constant.BATCH_HEADER_SIZE).asByteBuffer();
+                int batchLength = header.getInt(Long.BYTES);
+                long batchSize = Constant.LOG_OVERHEAD + (long) batchLength;
+                if (batchSize < Constant.BATCH_HEADER_SIZE
+                        || position + batchSize > fileSize
+                        || !isValidBatch(mappedLog.asSlice(position, batchSize).asByteBuffer(), crc)) {
+                    break;
+                }
+                if (position - lastIndexedPosition >= Constant.INDEX_INTERVAL_BYTES) {
+                    offsetIndex.append(header.getLong(0), position);
+                    lastIndexedPosition = position;
+                }
+                position += batchSize;
+            }
+        }
+
+        if (position == fileSize) {
+            size = fileSize;
+            return false;
+        }
+        System.out.printf("truncating %s from %s to %s bytes at its first invalid batch%n", logFile, fileSize, position);
+        fileChannel.truncate(position);
+        fileChannel.force(true);
+        size = position;
+        return true;
+    }
+
+    /**
+     * The checks a record batch has to pass both when it is appended and when it is read back during recovery, so
+     * that recovery never drops a batch that was acknowledged
+     *
+     * @param batch exactly one record batch, from its position to its limit
+     * @param crc   reset before use, passed in so a scan can reuse one instance
+     */
+    static boolean isValidBatch(ByteBuffer batch, CRC32C crc) {
+        int position = batch.position();
+        if (batch.remaining() < Constant.BATCH_HEADER_SIZE
+                || Constant.LOG_OVERHEAD + (long) batch.getInt(position + Long.BYTES) != batch.remaining()
+                || batch.get(position + Constant.BATCH_MAGIC_POSITION) != Constant.BATCH_MAGIC_V2
+                || batch.getInt(position + Constant.BATCH_LAST_OFFSET_DELTA_POSITION) < 0
+                || batch.getInt(position + Constant.BATCH_RECORDS_COUNT_POSITION) < 0) {
+            return false;
+        }
+        crc.reset();
+        crc.update(batch.duplicate().position(position + Constant.BATCH_ATTRIBUTES_POSITION));
+        return (int) crc.getValue() == batch.getInt(position + Constant.BATCH_CRC_POSITION);
+    }
+
+    /**
+     * Sync the log file, e.g. once the segment is sealed
+     */
+    public void flush() throws IOException {
+        fileChannel.force(false);
+    }
+
+    /**
+     * No more batches are appended to a segment once the partition rolled to a new one, its files can be mapped
+     */
+    public void seal() {
+        isSealed = Boolean.TRUE;
+        offsetIndex.seal();
+    }
+
+    /**
+     * @return the offset following the last batch of this segment, or defaultNextOffset when the segment is empty
+     */
+    public long findNextOffset(long defaultNextOffset) throws IOException {
+        // only the batches after the last index entry need to be walked to find the segment end
+        long position = lastIndexedPosition;
+        long nextOffset = defaultNextOffset;
+        ByteBuffer header = ByteBuffer.allocate(Constant.BATCH_OFFSET_HEADER_SIZE);
+        while (position + Constant.BATCH_OFFSET_HEADER_SIZE <= size) {
+            readBatchHeader(null, position, header);
+            nextOffset = getEndOffset(header) + Constant.NEXXT_OFFSET_INCREMENT;
+            position += Constant.LOG_OVERHEAD + header.getInt(Long.BYTES);
+        }
+        return nextOffset;
+    }
+
+    /**
+     * @return the position of the first batch at or after startPosition whose last offset is at least targetOffset,
+     * or endPosition when every batch ends before targetOffset
+     */
+    private long findBatchPosition(MemorySegment mappedLog, long startPosition, long endPosition, long targetOffset) throws IOException {
+        long position = startPosition;
+        ByteBuffer header = ByteBuffer.allocate(Constant.BATCH_OFFSET_HEADER_SIZE);
+        while (position + Constant.BATCH_OFFSET_HEADER_SIZE <= endPosition) {
+            header = readBatchHeader(mappedLog, position, header);
+            if (getEndOffset(header) >= targetOffset) {
+                return position;
+            }
+            position += Constant.LOG_OVERHEAD + header.getInt(Long.BYTES);
+        }
+        return endPosition;
+    }
+
+    /**
+     * @return the end position of the last batch starting at or after startPosition that still fits in maxBytes from
+     * startPosition, or of the first one when none fits and isMinOneBatch
+     */
+    private long findLimitPosition(MemorySegment mappedLog, long startPosition, long endPosition, long maxBytes, boolean isMinOneBatch) throws IOException {
+        // indexed positions are batch boundaries, only the batches after the closest one to the limit are walked
+        long position = Math.max(startPosition, offsetIndex.floorPosition(startPosition + maxBytes));
+        ByteBuffer header = ByteBuffer.allocate(Constant.LOG_OVERHEAD);
+        while (position + Constant.LOG_OVERHEAD <= endPosition) {
+            header = readBatchHeader(mappedLog, position, header);
+            long nextPosition = position + Constant.LOG_OVERHEAD + header.getInt(Long.BYTES);
+            boolean isFirstBatch = position == startPosition;
+            if (nextPosition - startPosition > maxBytes && !(isMinOneBatch && isFirstBatch)) {
+                break;
+            }
+            position = nextPosition;
+        }
+        return position;
+    }
+
+    /**
+     * @param mappedLog the mapping of the log file, or null to read the header into the given buffer
+     * @return the header, a view of the mapping when the log file is mapped
+     */
+    private ByteBuffer readBatchHeader(MemorySegment mappedLog, long position, ByteBuffer header) throws IOException {
+        if (mappedLog != null) {
+            return mappedLog.asSlice(position, header.capacity()).asByteBuffer();
+        }
+        header.clear();
+        while (header.hasRemaining() && fileChannel.read(header, position + header.position()) >= 0) {
+            /* keep reading until the header is filled */
+        }
+        return header;
+    }
+
+    private static long getEndOffset(ByteBuffer header) {
+        return header.getLong(0) + header.getInt(Constant.BATCH_LAST_OFFSET_DELTA_POSITION);
+    }
+
+    /**
+     * Unmap and close the files then delete the log and index files of this segment
+     */
+    public void delete() {
+        try {
+            Kafka.getMAPPED_FILE_CACHE().invalidate(logFile);
+            offsetIndex.close();
+            fileChannel.close();
+        } catch (IOException e) {
+            System.out.printf("failed to close segment %s due to %s%n", logFile, e.getMessage());
+        }
+        if (!logFile.delete() || (offsetIndex.getFile().exists() && !offsetIndex.getFile().delete())) {
+            System.out.printf("failed to delete segment files of %s%n", logFile);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getBaseOffset() {
+        return baseOffset;
+    }
+
+    public File getLogFile() {
+        return logFile;
+    }
+
+    public long getCreatedMs() {
+        return createdMs;
+    }
+
+    public long getLastModifiedMs() {
+        return logFile.lastModified();
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
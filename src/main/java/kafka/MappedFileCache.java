@@ -0,0 +1,173 @@
+package kafka;
+
+import constant.Constant;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory mappings of the files of sealed segments, whose log and index no longer change, so that offset lookups and
+ * batch header walks read the page cache directly instead of doing a syscall per read. Up to log.max.mapped.files
+ * files are mapped at once, the least recently used mapping being unmapped as soon as no reader holds it anymore.
+ * No lock is held around mapping and unmapping, a mapping being reference counted by the cache and its readers and
+ * unmapped by whichever of them lets go of it last.
+ */
+public class MappedFileCache {
+
+    private final int maxMappedFiles;
+    private final Map<File, MappedFile> mappedFileMap = new ConcurrentHashMap<>();
+    private final AtomicLong accessClock = new AtomicLong();
+
+    public MappedFileCache(int maxMappedFiles) {
+        this.maxMappedFiles = maxMappedFiles;
+    }
+
+    public static MappedFileCache of(Properties properties) {
+        int maxMappedFiles = Integer.parseInt(properties.getProperty(
+                Constant.LOG_MAX_MAPPED_FILES,
+                String.valueOf(Constant.DEFAULT_LOG_MAX_MAPPED_FILES)
+        ).trim());
+        return new MappedFileCache(maxMappedFiles);
+    }
+
+    public static MappedFileCache defaults() {
+        return of(new Properties());
+    }
+
+    /**
+     * Map the first size bytes of the file, or reuse its mapping when it covers them, until the matching
+     * {@link #release}. A mapping shorter than size, taken before the file last grew, is replaced by a new one.
+     *
+     * @return the mapping, or null when mapping is disabled or the file is empty, the caller then reading the channel
+     */
+    public MappedFile acquire(File file, FileChannel fileChannel, long size) throws IOException {
+        if (maxMappedFiles <= 0 || size <= 0) {
+            return null;
+        }
+
+        // step 1: reuse the cached mapping, unless it was evicted and unmapped in the meantime
+        MappedFile mappedFile = mappedFileMap.get(file);
+        if (mappedFile != null && mappedFile.memorySegment.byteSize() < size) {
+            if (mappedFileMap.remove(file, mappedFile)) {
+                mappedFile.evict();
+            }
+        } else if (mappedFile != null && mappedFile.retain()) {
+            mappedFile.lastAccess = accessClock.incrementAndGet();
+            return mappedFile;
+        }
+
+        // step 2: map the file, held by the cache and the caller, a mapping cached concurrently for it being replaced
+        Arena arena = Arena.ofShared();
+        try {
+            mappedFile = new MappedFile(arena, fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena));
+        } catch (IOException | RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+        mappedFile.lastAccess = accessClock.incrementAndGet();
+        MappedFile replacedFile = mappedFileMap.put(file, mappedFile);
+        if (replacedFile != null) {
+            replacedFile.evict();
+        }
+        evictEldest();
+        return mappedFile;
+    }
+
+    public void release(MappedFile mappedFile) {
+        if (mappedFile != null) {
+            mappedFile.release();
+        }
+    }
+
+    /**
+     * Unmap the file, e.g. before deleting it, once its current readers are done
+     */
+    public void invalidate(File file) {
+        MappedFile mappedFile = mappedFileMap.remove(file);
+        if (mappedFile != null) {
+            mappedFile.evict();
+        }
+    }
+
+    public int size() {
+        return mappedFileMap.size();
+    }
+
+    /**
+     * Only run after a new mapping, each pass scanning for the least recently used one, which costs little next to
+     * the mmap it follows
+     */
+    private void evictEldest() {
+        while (mappedFileMap.size() > maxMappedFiles) {
+            Map.Entry<File, MappedFile> eldestEntry = null;
+            for (Map.Entry<File, MappedFile> entry : mappedFileMap.entrySet()) {
+                if (eldestEntry == null || entry.getValue().lastAccess < eldestEntry.getValue().lastAccess) {
+                    eldestEntry = entry;
+                }
+            }
+            if (eldestEntry == null) {
+                return;
+            }
+            if (mappedFileMap.remove(eldestEntry.getKey(), eldestEntry.getValue())) {
+                eldestEntry.getValue().evict();
+            }
+        }
+    }
+
+    public static class MappedFile {
+
+        private final Arena arena;
+        private final MemorySegment memorySegment;
+        // one reference for the cache until evicted, plus one per reader, unmapped when it drops to 0
+        private final AtomicInteger references = new AtomicInteger(2);
+        private final AtomicBoolean isEvicted = new AtomicBoolean();
+        private volatile long lastAccess;
+
+        private MappedFile(Arena arena, MemorySegment memorySegment) {
+            this.arena = arena;
+            this.memorySegment = memorySegment;
+        }
+
+        public MemorySegment getMemorySegment() {
+            return memorySegment;
+        }
+
+        /**
+         * @return false when the mapping was already unmapped, it must then not be read
+         */
+        private boolean retain() {
+            int current = references.get();
+            while (current > 0) {
+                if (references.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+                current = references.get();
+            }
+            return false;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                arena.close();
+            }
+        }
+
+        /**
+         * Drop the reference of the cache, once only however many times the mapping is evicted
+         */
+        private void evict() {
+            if (isEvicted.compareAndSet(Boolean.FALSE, Boolean.TRUE)) {
+                release();
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package kafka;
+
+import constant.Constant;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sparse on-disk index mapping a batch base offset to its byte position in the partition log file.
+ * Each entry is a 4-byte offset relative to the base offset of the log file followed by a 4-byte file position,
+ * entries being appended in increasing offset order so that lookups can binary search the file.
+ * The file stays open once created, and is memory mapped for lookups once its segment is sealed.
+ */
+public class OffsetIndex {
+
+    private static final ValueLayout.OfInt ENTRY_INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+
+    private final File file;
+    private final long baseOffset;
+    private volatile FileChannel fileChannel;
+    private volatile boolean isSealed;
+
+    public OffsetIndex(File file, long baseOffset) throws IOException {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        if (file.exists()) {
+            this.fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    /**
+     * Only called by the appender of the segment
+     */
+    public void append(long offset, long position) throws IOException {
+        if (fileChannel == null) {
+            fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Constant.INDEX_ENTRY_SIZE);
+        entry.putInt((int) (offset - baseOffset));
+        entry.putInt((int) position);
+        entry.flip();
+        long filePosition = fileChannel.size();
+        while (entry.hasRemaining()) {
+            filePosition += fileChannel.write(entry, filePosition);
+        }
+    }
+
+    /**
+     * @return the last indexed entry, or null when the index is empty
+     */
+    public Entry lastEntry() throws IOException {
+        if (fileChannel == null) {
+            return null;
+        }
+        int entryCount = (int) (fileChannel.size() / Constant.INDEX_ENTRY_SIZE);
+        if (entryCount == 0) {
+            return null;
+        }
+        return readEntry(null, entryCount - 1);
+    }
+
+    /**
+     * @return the file position of the greatest indexed batch whose base offset is less than or equal to targetOffset,
+     * or 0 when no such entry exists so that the caller scans from the start of the log file
+     */
+    public long lookup(long targetOffset) throws IOException {
+        return floorEntryPosition(targetOffset, Boolean.FALSE);
+    }
+
+    /**
+     * @return the greatest indexed batch position less than or equal to targetPosition, or 0 when no such entry
+     * exists, positions increasing along with offsets
+     */
+    public long floorPosition(long targetPosition) throws IOException {
+        return floorEntryPosition(targetPosition, Boolean.TRUE);
+    }
+
+    /**
+     * Drop every entry, before the index is rebuilt from its log file
+     */
+    public void truncate() throws IOException {
+        if (fileChannel != null) {
+            fileChannel.truncate(0);
+        }
+    }
+
+    /**
+     * The index no longer changes, further lookups go through its memory mapping
+     */
+    public void seal() {
+        isSealed = Boolean.TRUE;
+    }
+
+    /**
+     * Unmap then close the index file, before deleting it
+     */
+    public void close() throws IOException {
+        Kafka.getMAPPED_FILE_CACHE().invalidate(file);
+        if (fileChannel != null) {
+            fileChannel.close();
+        }
+    }
+
+    private long floorEntryPosition(long target, boolean isByPosition) throws IOException {
+        FileChannel currentFileChannel = fileChannel;
+        if (currentFileChannel == null) {
+            return 0;
+        }
+        long fileSize = currentFileChannel.size();
+        MappedFileCache.MappedFile mappedFile = isSealed
+                ? Kafka.getMAPPED_FILE_CACHE().acquire(file, currentFileChannel, fileSize)
+                : null;
+        try {
+            MemorySegment memorySegment = mappedFile == null ? null : mappedFile.getMemorySegment();
+            int low = 0;
+            int high = (int) (fileSize / Constant.INDEX_ENTRY_SIZE) - 1;
+            long position = 0;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                Entry entry = readEntry(memorySegment, middle);
+                if ((isByPosition ? entry.position() : entry.offset()) <= target) {
+                    position = entry.position();
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return position;
+        } finally {
+            Kafka.getMAPPED_FILE_CACHE().release(mappedFile);
+        }
+    }
+
+    /**
+     * @param memorySegment the mapping of the index, or null to read the file
+     */
+    private Entry readEntry(MemorySegment memorySegment, int slot) throws IOException {
+        long filePosition = (long) slot * Constant.INDEX_ENTRY_SIZE;
+        if (memorySegment != null) {
+            return new Entry(
+                    baseOffset + memorySegment.get(ENTRY_INT, filePosition),
+                    Integer.toUnsignedLong(memorySegment.get(ENTRY_INT, filePosition + Integer.BYTES))
+            );
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Constant.INDEX_ENTRY_SIZE);
+        while (entry.hasRemaining()) {
+            if (fileChannel.read(entry, filePosition + entry.position()) < 0) {
+                throw new IOException("unexpected end of index file %s".formatted(file));
+            }
+        }
+        entry.flip();
+        return new Entry(baseOffset + entry.getInt(), Integer.toUnsignedLong(entry.getInt()));
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public record Entry(
+            long offset,
+            long position
+    ) {
+    }
+}
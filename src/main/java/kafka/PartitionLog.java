@@ -0,0 +1,422 @@
+package kafka;
+
+import constant.Constant;
+import exception.CorruptRecordException;
+import io.FileRegion;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * The log segments of a partition keyed by base offset, and the in-memory next offset to assign.
+ * The next offset is recovered once when the partition is first touched, then advanced on every append
+ * so that producing never has to re-read the log. The last segment is the active one; it is rolled
+ * once it reaches log.segment.bytes or is older than log.roll.ms.
+ * Each partition has a single writer at a time, the holder of its append lock, which alone assigns offsets and
+ * writes; partitions never contend with each other and readers only see the published log end offset.
+ * The recovery point is the offset below which the log is known to be synced to disk, only the segments from the
+ * one holding it onward being validated when the partition is opened after a crash.
+ */
+public class PartitionLog {
+
+    private final TopicPartition topicPartition;
+    private final File partitionDirectory;
+    private final LogConfig logConfig;
+    private final NavigableMap<Long, LogSegment> segments;
+    // only read and written by the append lock holder
+    private long nextOffset;
+    private volatile long logEndOffset;
+    private volatile long logStartOffset;
+    private volatile long recoveryPoint;
+    private final Queue<PendingAppend> appendQueue = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private long unflushedRecords;
+
+    private PartitionLog(TopicPartition topicPartition, File partitionDirectory, LogConfig logConfig, NavigableMap<Long, LogSegment> segments, long nextOffset) {
+        this.topicPartition = topicPartition;
+        this.partitionDirectory = partitionDirectory;
+        this.logConfig = logConfig;
+        this.segments = segments;
+        this.nextOffset = nextOffset;
+        this.logEndOffset = nextOffset;
+        this.recoveryPoint = nextOffset;
+        this.logStartOffset = segments.isEmpty() ? Constant.DEFAULT_LOG_START_OFFSET : segments.firstKey();
+    }
+
+    /**
+     * @param recoveryPoint the checkpointed recovery point of the partition, the segments from the one holding it
+     *                      onward are validated and truncated at their first torn or corrupt batch
+     */
+    public static PartitionLog open(File logRoot, TopicPartition topicPartition, LogConfig logConfig, long recoveryPoint) {
+        File partitionDirectory = new File(logRoot, String.format(
+                Constant.FORMATTED_PARTITION_DIRECTORY,
+                topicPartition.topicName(),
+                topicPartition.partitionIndex()
+        ));
+        NavigableMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+        long nextOffset = Constant.DEFAULT_LOG_START_OFFSET;
+
+        try {
+            // step 1: open every segment found in the partition directory
+            File[] logFiles = partitionDirectory.listFiles((directory, name) -> name.endsWith(Constant.LOG_SEGMENT_FILE_SUFFIX));
+            if (logFiles != null) {
+                for (File logFile : logFiles) {
+                    String name = logFile.getName();
+                    long baseOffset = Long.parseLong(name.substring(0, name.length() - Constant.LOG_SEGMENT_FILE_SUFFIX.length()));
+                    segments.put(baseOffset, LogSegment.open(partitionDirectory, baseOffset));
+                }
+            }
+
+            // step 2: validate the segments written since the recovery point with the checks every append passes, so a
+            // batch failing them was torn by the crash and never acknowledged as durable, nor were the batches after
+            // it, hence the segments following a truncated one are dropped altogether
+            Long recoveryBaseOffset = segments.floorKey(recoveryPoint);
+            boolean isTruncated = false;
+            for (LogSegment segment : segments.tailMap(recoveryBaseOffset == null ? Constant.DEFAULT_LOG_START_OFFSET : recoveryBaseOffset).values()) {
+                if (isTruncated) {
+                    System.out.printf("deleting segment %s of %s following a truncated one%n", segment.getBaseOffset(), topicPartition);
+                    segments.remove(segment.getBaseOffset());
+                    segment.delete();
+                    continue;
+                }
+                isTruncated = segment.recover();
+                segment.flush();
+            }
+
+            // step 3: only the last segment needs to be walked to find the log end, the others are sealed
+            Map.Entry<Long, LogSegment> lastSegment = segments.lastEntry();
+            if (lastSegment != null) {
+                nextOffset = lastSegment.getValue().findNextOffset(lastSegment.getKey());
+                segments.headMap(lastSegment.getKey()).values().forEach(LogSegment::seal);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.out.printf("failed to open log segments of %s due to %s%n", topicPartition, e.getMessage());
+        }
+        return new PartitionLog(topicPartition, partitionDirectory, logConfig, segments, nextOffset);
+    }
+
+    /**
+     * Append a record batch, overwriting its base offset with the next offset of the partition. Batches arriving
+     * concurrently are queued and written together by whichever caller holds the append lock, so a hot partition
+     * does a single write, and at most one sync, per group rather than per batch.
+     *
+     * @param isDurable whether the batch must be synced to disk before returning, regardless of
+     *                  log.flush.interval.messages, as asked by a producer using acks=-1
+     * @return the base offset assigned to the batch, once the batch is written and synced as configured
+     */
+    public long append(ByteBuffer recordData, boolean isDurable) throws IOException {
+        // a malformed batch is turned away before it reaches the queue, the lock holder only sees whole batches
+        validateBatch(recordData);
+        PendingAppend pendingAppend = new PendingAppend(recordData, isDurable);
+        appendQueue.add(pendingAppend);
+        appendLock.lock();
+        try {
+            // the previous lock holder may already have written this batch along with its own
+            if (!pendingAppend.isDone) {
+                writeAppendQueue();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (pendingAppend.exception != null) {
+            throw pendingAppend.exception;
+        }
+        return pendingAppend.baseOffset;
+    }
+
+    /**
+     * @throws CorruptRecordException unless recordData holds exactly one record batch that recovery would keep
+     */
+    private static void validateBatch(ByteBuffer recordData) throws CorruptRecordException {
+        if (!LogSegment.isValidBatch(recordData, new CRC32C())) {
+            throw new CorruptRecordException("invalid record batch of %s bytes".formatted(recordData.remaining()));
+        }
+    }
+
+    /**
+     * Drain the append queue, writing each run of batches that fits in the active segment as one group. Offsets
+     * are only assigned once the segment a batch goes to is settled, and every polled batch is completed, appended
+     * or failed, before returning.
+     */
+    private void writeAppendQueue() {
+        List<PendingAppend> group = new ArrayList<>();
+        LogSegment groupSegment = null;
+        long groupSize = 0;
+        PendingAppend pendingAppend = null;
+        RuntimeException failure = null;
+        try {
+            while ((pendingAppend = appendQueue.poll()) != null) {
+                ByteBuffer recordData = pendingAppend.recordData;
+
+                // step 1: a batch rolling the segment first gets the pending group written, the new segment then
+                // starting right after the offsets that actually made it to disk
+                if (!group.isEmpty() && isRollDue(groupSegment, groupSize + recordData.remaining())) {
+                    writeGroup(groupSegment, group);
+                    group.clear();
+                    groupSize = 0;
+                }
+
+                // step 2: settle the segment, the rolled one only gets sealed now that its last group is written
+                Map.Entry<Long, LogSegment> activeSegment = segments.lastEntry();
+                LogSegment segment;
+                try {
+                    segment = maybeRoll(nextOffset, groupSize + recordData.remaining());
+                } catch (IOException e) {
+                    pendingAppend.complete(e);
+                    continue;
+                }
+                if (activeSegment != null && activeSegment.getValue() != segment) {
+                    seal(activeSegment.getValue());
+                }
+                groupSegment = segment;
+
+                // step 3: assign offsets, the batch being bound to this segment
+                pendingAppend.baseOffset = nextOffset;
+                nextOffset += recordData.getInt(recordData.position() + Constant.BATCH_LAST_OFFSET_DELTA_POSITION) + Constant.NEXXT_OFFSET_INCREMENT;
+                group.add(pendingAppend);
+                groupSize += recordData.remaining();
+            }
+            if (!group.isEmpty()) {
+                writeGroup(groupSegment, group);
+            }
+        } catch (RuntimeException e) {
+            System.out.printf("failed to append to %s due to %s%n", topicPartition, e);
+            failure = e;
+        } finally {
+            abort(group, pendingAppend, failure);
+        }
+    }
+
+    /**
+     * Fail the polled batches left without an outcome, giving their offsets back, so that no producer takes a
+     * batch that was never written as appended
+     */
+    private void abort(List<PendingAppend> group, PendingAppend pendingAppend, RuntimeException failure) {
+        IOException exception = null;
+        for (PendingAppend groupAppend : group) {
+            if (!groupAppend.isDone) {
+                if (exception == null) {
+                    nextOffset = groupAppend.baseOffset;
+                    exception = new IOException("append to %s aborted".formatted(topicPartition), failure);
+                }
+                groupAppend.complete(exception);
+            }
+        }
+        if (pendingAppend != null && !pendingAppend.isDone) {
+            pendingAppend.complete(exception == null ? new IOException("append to %s aborted".formatted(topicPartition), failure) : exception);
+        }
+    }
+
+    private void writeGroup(LogSegment segment, List<PendingAppend> group) {
+        long records = 0;
+        boolean isDurable = false;
+        for (PendingAppend pendingAppend : group) {
+            records += pendingAppend.recordData.getInt(pendingAppend.recordData.position() + Constant.BATCH_RECORDS_COUNT_POSITION);
+            isDurable |= pendingAppend.isDurable;
+        }
+        // a single durable batch syncs the whole group, the others riding along for free
+        boolean flush = isDurable || unflushedRecords + records >= logConfig.flushIntervalMessages();
+        IOException exception = null;
+        try {
+            segment.append(group, flush);
+            unflushedRecords = flush ? 0 : unflushedRecords + records;
+            PendingAppend lastAppend = group.getLast();
+            logEndOffset = lastAppend.baseOffset
+                    + lastAppend.recordData.getInt(lastAppend.recordData.position() + Constant.BATCH_LAST_OFFSET_DELTA_POSITION)
+                    + Constant.NEXXT_OFFSET_INCREMENT;
+            // syncing the active segment only covers the log up to its end once the sealed segments are synced too
+            if (flush && recoveryPoint >= segment.getBaseOffset()) {
+                advanceRecoveryPoint(logEndOffset);
+            }
+        } catch (IOException e) {
+            // nothing of the group is visible, give its offsets back to the batches that follow
+            nextOffset = group.getFirst().baseOffset;
+            exception = e;
+        }
+        for (PendingAppend pendingAppend : group) {
+            pendingAppend.complete(exception);
+        }
+    }
+
+    /**
+     * @return the active segment, after rolling a new one starting at baseOffset when the current one cannot take
+     * another appendSize bytes or is too old
+     */
+    private synchronized LogSegment maybeRoll(long baseOffset, long appendSize) throws IOException {
+        Map.Entry<Long, LogSegment> activeSegment = segments.lastEntry();
+        if (activeSegment != null && !isRollDue(activeSegment.getValue(), appendSize)) {
+            return activeSegment.getValue();
+        }
+        LogSegment segment = LogSegment.open(partitionDirectory, baseOffset);
+        segments.put(baseOffset, segment);
+        return segment;
+    }
+
+    /**
+     * @return whether the segment cannot take another appendSize bytes or is too old, an empty segment never rolling
+     */
+    private boolean isRollDue(LogSegment segment, long appendSize) {
+        boolean isFull = segment.getSize() + appendSize > logConfig.segmentBytes();
+        boolean isExpired = System.currentTimeMillis() - segment.getCreatedMs() >= logConfig.rollMs();
+        return !segment.isEmpty() && (isFull || isExpired);
+    }
+
+    /**
+     * Sync then seal a segment the partition rolled away from, leaving it unsealed, and read through its channel,
+     * when the sync fails
+     */
+    private void seal(LogSegment segment) {
+        try {
+            segment.flush();
+            segment.seal();
+        } catch (IOException e) {
+            System.out.printf("failed to seal segment %s of %s due to %s%n", segment.getBaseOffset(), topicPartition, e.getMessage());
+        }
+    }
+
+    /**
+     * Sync the sealed segments not synced yet, then advance the recovery point to the base offset of the active
+     * segment, which is left to log.flush.interval.messages and durable produces
+     */
+    public void flushSealedSegments() throws IOException {
+        Map.Entry<Long, LogSegment> activeSegment = segments.lastEntry();
+        if (activeSegment == null || recoveryPoint >= activeSegment.getKey()) {
+            return;
+        }
+        Long recoveryBaseOffset = segments.floorKey(recoveryPoint);
+        long fromOffset = recoveryBaseOffset == null ? Constant.DEFAULT_LOG_START_OFFSET : recoveryBaseOffset;
+        for (LogSegment segment : segments.subMap(fromOffset, activeSegment.getKey()).values()) {
+            segment.flush();
+        }
+        advanceRecoveryPoint(activeSegment.getKey());
+    }
+
+    private synchronized void advanceRecoveryPoint(long offset) {
+        if (offset > recoveryPoint) {
+            recoveryPoint = offset;
+        }
+    }
+
+    /**
+     * Remove the oldest segments that are past log.retention.ms, then those exceeding log.retention.bytes,
+     * and advance the log start offset to the base offset of the first remaining segment.
+     * The active segment is never removed.
+     *
+     * @return the removed segments, whose files are left for the caller to delete
+     */
+    public synchronized List<LogSegment> deleteRetainedSegments(long nowMs) {
+        List<LogSegment> deletedSegments = new ArrayList<>();
+        long totalSize = segments.values().stream().mapToLong(LogSegment::getSize).sum();
+        while (segments.size() > 1) {
+            LogSegment oldestSegment = segments.firstEntry().getValue();
+            boolean isExpired = logConfig.retentionMs() >= 0
+                    && nowMs - oldestSegment.getLastModifiedMs() > logConfig.retentionMs();
+            boolean isOversized = logConfig.retentionBytes() >= 0
+                    && totalSize - oldestSegment.getSize() >= logConfig.retentionBytes();
+            if (!isExpired && !isOversized) {
+                break;
+            }
+            segments.pollFirstEntry();
+            totalSize -= oldestSegment.getSize();
+            deletedSegments.add(oldestSegment);
+        }
+        if (!deletedSegments.isEmpty()) {
+            logStartOffset = segments.firstKey();
+        }
+        return deletedSegments;
+    }
+
+    /**
+     * @return a region covering the whole batches of a single segment from the first one containing fetchOffset
+     * onward, up to maxBytes as LogSegment.read bounds them, or null when the partition has no segment yet
+     */
+    public FileRegion read(long fetchOffset, long maxBytes, boolean isMinOneBatch) throws IOException {
+        // step 1: floor lookup of the segment holding fetchOffset, falling back to the first segment
+        Map.Entry<Long, LogSegment> segmentEntry = segments.floorEntry(fetchOffset);
+        if (segmentEntry == null) {
+            segmentEntry = segments.firstEntry();
+        }
+
+        // step 2: move to the following segments while the current one has nothing at or after fetchOffset
+        FileRegion fileRegion = null;
+        while (segmentEntry != null) {
+            fileRegion = segmentEntry.getValue().read(fetchOffset, maxBytes, isMinOneBatch);
+            if (fileRegion.size() > 0) {
+                return fileRegion;
+            }
+            segmentEntry = segments.higherEntry(segmentEntry.getKey());
+        }
+        return fileRegion;
+    }
+
+    public TopicPartition getTopicPartition() {
+        return topicPartition;
+    }
+
+    /**
+     * @return the offset following the last written batch, offsets assigned to batches still being written excluded
+     */
+    public long getLogEndOffset() {
+        return logEndOffset;
+    }
+
+    public long getLogStartOffset() {
+        return logStartOffset;
+    }
+
+    public long getRecoveryPoint() {
+        return recoveryPoint;
+    }
+
+    /**
+     * @return bytes of every segment of the partition, read without locking while appends go on
+     */
+    public long getSize() {
+        long size = 0;
+        for (LogSegment segment : segments.values()) {
+            size += segment.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * A batch waiting in the append queue. Its fields are written by the lock holder that appends it and read by
+     * its producer once it holds the lock in turn.
+     */
+    static class PendingAppend {
+
+        private final ByteBuffer recordData;
+        private final boolean isDurable;
+        private long baseOffset;
+        private IOException exception;
+        private boolean isDone;
+
+        private PendingAppend(ByteBuffer recordData, boolean isDurable) {
+            this.recordData = recordData;
+            this.isDurable = isDurable;
+        }
+
+        private void complete(IOException exception) {
+            this.exception = exception;
+            this.isDone = Boolean.TRUE;
+        }
+
+        ByteBuffer getRecordData() {
+            return recordData;
+        }
+
+        long getBaseOffset() {
+            return baseOffset;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package kafka;
+
+import constant.Constant;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The recovery point of each partition, the offset below which its log is known to be synced to disk, in the
+ * format of the Kafka recovery-point-offset-checkpoint file: a version line, an entry count line, then one
+ * "topic partition offset" line per partition.
+ */
+public class RecoveryPointCheckpoint {
+
+    private final File file;
+
+    public RecoveryPointCheckpoint(File logRoot) {
+        this.file = new File(logRoot, Constant.RECOVERY_POINT_CHECKPOINT_FILE_NAME);
+    }
+
+    /**
+     * @return the checkpointed recovery points, empty when the broker never checkpointed or the file is unreadable,
+     * every partition then being recovered from its first segment
+     */
+    public Map<TopicPartition, Long> read() {
+        Map<TopicPartition, Long> recoveryPoints = new HashMap<>();
+        if (!file.exists()) {
+            return recoveryPoints;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            int version = Integer.parseInt(reader.readLine().trim());
+            if (version != Constant.RECOVERY_POINT_CHECKPOINT_VERSION) {
+                throw new IOException("unsupported version %s".formatted(version));
+            }
+            int entryCount = Integer.parseInt(reader.readLine().trim());
+            for (int i = 0; i < entryCount; i++) {
+                String[] fields = reader.readLine().trim().split(" ");
+                recoveryPoints.put(new TopicPartition(fields[0], Integer.parseInt(fields[1])), Long.parseLong(fields[2]));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.printf("failed to read recovery point checkpoint %s due to %s%n", file, e.getMessage());
+            recoveryPoints.clear();
+        }
+        return recoveryPoints;
+    }
+
+    /**
+     * Write then sync a temporary file before renaming it over the checkpoint, so that a crash leaves either the
+     * previous checkpoint or the new one
+     */
+    public void write(Map<TopicPartition, Long> recoveryPoints) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOutputStream = new FileOutputStream(temporaryFile);
+             Writer writer = new OutputStreamWriter(fileOutputStream, StandardCharsets.UTF_8)) {
+            writer.write("%d\n%d\n".formatted(Constant.RECOVERY_POINT_CHECKPOINT_VERSION, recoveryPoints.size()));
+            for (Map.Entry<TopicPartition, Long> entry : recoveryPoints.entrySet()) {
+                writer.write("%s %d %d\n".formatted(entry.getKey().topicName(), entry.getKey().partitionIndex(), entry.getValue()));
+            }
+            writer.flush();
+            fileOutputStream.getFD().sync();
+        }
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,61 @@
+package kafka;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Background task syncing the sealed segments of every partition every log.flush.offset.checkpoint.interval.ms,
+ * then checkpointing the recovery point of each partition, so that recovery after a crash only validates the
+ * segments written since the last checkpoint.
+ */
+public class RecoveryPointCheckpointScheduler {
+
+    private final LogConfig logConfig;
+    private final RecoveryPointCheckpoint recoveryPointCheckpoint;
+    private final Supplier<List<PartitionLog>> partitionLogSupplier;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public RecoveryPointCheckpointScheduler(LogConfig logConfig, RecoveryPointCheckpoint recoveryPointCheckpoint, Supplier<List<PartitionLog>> partitionLogSupplier) {
+        this.logConfig = logConfig;
+        this.recoveryPointCheckpoint = recoveryPointCheckpoint;
+        this.partitionLogSupplier = partitionLogSupplier;
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recovery-point-checkpoint");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(
+                this::checkpoint,
+                logConfig.flushOffsetCheckpointIntervalMs(),
+                logConfig.flushOffsetCheckpointIntervalMs(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    private void checkpoint() {
+        Map<TopicPartition, Long> recoveryPoints = new HashMap<>();
+        for (PartitionLog partitionLog : partitionLogSupplier.get()) {
+            try {
+                partitionLog.flushSealedSegments();
+            } catch (IOException | RuntimeException e) {
+                System.out.printf("failed to flush segments of %s due to %s%n", partitionLog.getTopicPartition(), e.getMessage());
+            }
+            // a failed flush leaves the recovery point where it was, still safe to checkpoint
+            recoveryPoints.put(partitionLog.getTopicPartition(), partitionLog.getRecoveryPoint());
+        }
+        try {
+            recoveryPointCheckpoint.write(recoveryPoints);
+        } catch (IOException e) {
+            System.out.printf("failed to write recovery point checkpoint due to %s%n", e.getMessage());
+        }
+    }
+}
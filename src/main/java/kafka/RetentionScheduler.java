@@ -0,0 +1,55 @@
+package kafka;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Background task enforcing log.retention.ms and log.retention.bytes every log.retention.check.interval.ms.
+ * Expired segments are removed from their partition right away, advancing its log start offset,
+ * while their files are only closed and deleted after file.delete.delay.ms so that in-flight fetches
+ * still referencing them can complete.
+ */
+public class RetentionScheduler {
+
+    private final LogConfig logConfig;
+    private final Supplier<List<PartitionLog>> partitionLogSupplier;
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    public RetentionScheduler(LogConfig logConfig, Supplier<List<PartitionLog>> partitionLogSupplier) {
+        this.logConfig = logConfig;
+        this.partitionLogSupplier = partitionLogSupplier;
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-retention");
+            thread.setDaemon(Boolean.TRUE);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduledExecutorService.scheduleWithFixedDelay(
+                this::checkRetention,
+                logConfig.retentionCheckIntervalMs(),
+                logConfig.retentionCheckIntervalMs(),
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    private void checkRetention() {
+        long nowMs = System.currentTimeMillis();
+        for (PartitionLog partitionLog : partitionLogSupplier.get()) {
+            try {
+                List<LogSegment> deletedSegments = partitionLog.deleteRetainedSegments(nowMs);
+                for (LogSegment segment : deletedSegments) {
+                    System.out.printf("deleting segment %s of %s due to retention, log start offset is now %s%n",
+                            segment.getBaseOffset(), partitionLog.getTopicPartition(), partitionLog.getLogStartOffset());
+                    scheduledExecutorService.schedule(segment::delete, logConfig.fileDeleteDelayMs(), TimeUnit.MILLISECONDS);
+                }
+            } catch (RuntimeException e) {
+                System.out.printf("failed to apply retention to %s due to %s%n", partitionLog.getTopicPartition(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package kafka;
+
+public record TopicPartition(
+        String topicName,
+        int partitionIndex
+) {
+
+    @Override
+    public String toString() {
+        return "%s-%s".formatted(topicName, partitionIndex);
+    }
+}
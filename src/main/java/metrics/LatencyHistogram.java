@@ -0,0 +1,128 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram of non-negative values: exact below 64, then 32 buckets per power of two, so any recorded
+ * value is reported within about 3% of its real value.
+ * Recording is lock-free and allocation-free, it can be done concurrently with reading and from any thread.
+ */
+public class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int LINEAR_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BITS = Long.numberOfTrailingZeros(LINEAR_BUCKETS);
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - 1 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return the highest value of the bucket holding the given ratio of recorded values, 0 when empty
+     */
+    public long getValueAtPercentile(double ratio) {
+        long totalCount = count.sum();
+        if (totalCount == 0) {
+            return 0;
+        }
+        long targetCount = Math.max(1, (long) Math.ceil(ratio * totalCount));
+        long seenCount = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seenCount += counts.get(bucket);
+            if (seenCount >= targetCount) {
+                return Math.min(highestValueOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    @Override
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public double getMean() {
+        long totalCount = count.sum();
+        return totalCount == 0 ? 0 : (double) sum.sum() / totalCount;
+    }
+
+    @Override
+    public long get50thPercentile() {
+        return getValueAtPercentile(0.5);
+    }
+
+    @Override
+    public long get99thPercentile() {
+        return getValueAtPercentile(0.99);
+    }
+
+    @Override
+    public long get999thPercentile() {
+        return getValueAtPercentile(0.999);
+    }
+
+    /**
+     * Add the values recorded by another histogram to this one
+     */
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.addAndGet(bucket, other.counts.get(bucket));
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long otherMax = other.max.get();
+        long currentMax;
+        while (otherMax > (currentMax = max.get()) && !max.compareAndSet(currentMax, otherMax)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + LINEAR_BITS;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowestValue = ((long) (SUB_BUCKETS + subBucket)) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,19 @@
+package metrics;
+
+/**
+ * Management view of a latency histogram, values are in nanoseconds
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMean();
+
+    long getMax();
+
+    long get50thPercentile();
+
+    long get99thPercentile();
+
+    long get999thPercentile();
+}
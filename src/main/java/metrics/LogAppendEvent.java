@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Appending a record batch to the active segment of a partition
+ */
+@Name("kafka.LogAppend")
+@Label("Log Append")
+@Category({"Kafka", "Log"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class LogAppendEvent extends Event {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Partition")
+    public int partition;
+
+    @Label("Base Offset")
+    public long baseOffset;
+
+    @Label("Batch Bytes")
+    @DataAmount
+    public int bytes;
+}
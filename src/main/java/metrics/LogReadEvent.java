@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Locating the file region of a partition holding a fetch offset, the transfer itself happening on response write
+ */
+@Name("kafka.LogRead")
+@Label("Log Read")
+@Category({"Kafka", "Log"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class LogReadEvent extends Event {
+
+    @Label("Topic")
+    public String topic;
+
+    @Label("Partition")
+    public int partition;
+
+    @Label("Fetch Offset")
+    public long fetchOffset;
+
+    @Label("Region Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events with their one-minute exponentially weighted moving rate, the rate being updated every 5 seconds
+ * as in Kafka's OneMinuteRate. Reading the rate has no effect on what other readers see, so JMX consoles and
+ * Prometheus scrapes can read it concurrently. Marking is lock-free and allocation-free.
+ */
+public class Meter {
+
+    private static final long TICK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double TICK_INTERVAL_SECONDS = TICK_INTERVAL_NANOS / 1e9;
+    private static final double ONE_MINUTE_DECAY = Math.exp(-TICK_INTERVAL_SECONDS / TimeUnit.MINUTES.toSeconds(1));
+
+    private final LongAdder count = new LongAdder();
+    // guarded by the meter, only advanced by whole tick intervals
+    private long lastTickCount;
+    private long lastTickNanos = System.nanoTime();
+    private double rate;
+
+    public void mark() {
+        count.increment();
+    }
+
+    public void mark(long events) {
+        count.add(events);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return events per second averaged over about the last minute, up to the last completed tick interval
+     */
+    public synchronized double getRate() {
+        long elapsedTicks = (System.nanoTime() - lastTickNanos) / TICK_INTERVAL_NANOS;
+        if (elapsedTicks > 0) {
+            // the events since the last tick are spread evenly over the elapsed intervals, each of them decaying the
+            // rate towards that instant rate once, in closed form so that a long idle period costs nothing
+            long currentCount = count.sum();
+            double instantRate = (currentCount - lastTickCount) / (elapsedTicks * TICK_INTERVAL_SECONDS);
+            rate = instantRate + (rate - instantRate) * Math.pow(ONE_MINUTE_DECAY, elapsedTicks);
+            lastTickCount = currentCount;
+            lastTickNanos += elapsedTicks * TICK_INTERVAL_NANOS;
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,75 @@
+package metrics;
+
+import constant.Constant;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Broker wide metrics, registered as MBeans of the platform MBean server or rendered by the PrometheusExporter
+ */
+public class Metrics {
+
+    private static final MBeanServer MBEAN_SERVER = ManagementFactory.getPlatformMBeanServer();
+    private static final LongAdder ACTIVE_CONNECTIONS = new LongAdder();
+    private static final Map<String, TopicMetrics> TOPIC_METRICS_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * Register the request counters of each API along with one latency histogram per exchange stage
+     */
+    public static void registerRequestMetrics(Collection<RequestMetrics> requestMetricsList) {
+        for (RequestMetrics requestMetrics : requestMetricsList) {
+            register(Constant.FORMATTED_REQUEST_METRICS_OBJECT_NAME.formatted(
+                    Constant.REQUEST_METRICS_NAME, requestMetrics.getName(), requestMetrics.getVersion()), requestMetrics);
+            for (RequestMetrics.Stage stage : RequestMetrics.Stage.values()) {
+                register(Constant.FORMATTED_REQUEST_METRICS_OBJECT_NAME.formatted(
+                        stage.getMetricName(), requestMetrics.getName(), requestMetrics.getVersion()), requestMetrics.getStageLatency(stage));
+            }
+        }
+    }
+
+    public static void register(String objectName, Object mbean) {
+        try {
+            ObjectName name = new ObjectName(objectName);
+            if (MBEAN_SERVER.isRegistered(name)) {
+                MBEAN_SERVER.unregisterMBean(name);
+            }
+            MBEAN_SERVER.registerMBean(mbean, name);
+        } catch (JMException e) {
+            System.err.printf("failed to register mbean %s due to %s%n", objectName, e.getMessage());
+        }
+    }
+
+    public static void recordConnectionOpened() {
+        ACTIVE_CONNECTIONS.increment();
+    }
+
+    public static void recordConnectionClosed() {
+        ACTIVE_CONNECTIONS.decrement();
+    }
+
+    public static long getActiveConnections() {
+        return ACTIVE_CONNECTIONS.sum();
+    }
+
+    /**
+     * @return the metrics of the topic, created on first use
+     */
+    public static TopicMetrics getTopicMetrics(String topicName) {
+        TopicMetrics topicMetrics = TOPIC_METRICS_MAP.get(topicName);
+        if (topicMetrics == null) {
+            topicMetrics = TOPIC_METRICS_MAP.computeIfAbsent(topicName, name -> new TopicMetrics());
+        }
+        return topicMetrics;
+    }
+
+    public static Map<String, TopicMetrics> getTOPIC_METRICS_MAP() {
+        return TOPIC_METRICS_MAP;
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import constant.Constant;
+
+import java.util.Properties;
+
+/**
+ * Metrics settings read from the server properties. The Prometheus endpoint is only served when metrics.http.port
+ * is set, 0 binding any free port.
+ */
+public record MetricsConfig(
+        int httpPort
+) {
+
+    public static MetricsConfig of(Properties properties) {
+        int httpPort = Integer.parseInt(properties.getProperty(
+                Constant.METRICS_HTTP_PORT,
+                String.valueOf(Constant.DEFAULT_METRICS_HTTP_PORT)
+        ).trim());
+        return new MetricsConfig(httpPort);
+    }
+
+    public boolean isHttpEnabled() {
+        return httpPort >= 0;
+    }
+}
@@ -0,0 +1,219 @@
+package metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import constant.Constant;
+import domain.ExchangeMapper;
+import io.BufferPool;
+import kafka.Kafka;
+import kafka.PartitionLog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the broker metrics in the Prometheus text exposition format. Rendering only reads the lock-free counters
+ * and histograms of the request path, rates and averages are left to the Prometheus queries.
+ */
+public class PrometheusExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final double[] QUANTILES = {0.5, 0.95, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final HttpServer httpServer;
+
+    private PrometheusExporter(HttpServer httpServer) {
+        this.httpServer = httpServer;
+    }
+
+    public static PrometheusExporter start(MetricsConfig metricsConfig) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(metricsConfig.httpPort()), 0);
+        PrometheusExporter prometheusExporter = new PrometheusExporter(httpServer);
+        httpServer.createContext(Constant.METRICS_HTTP_PATH, prometheusExporter::handle);
+        httpServer.setExecutor(Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("metrics-http").factory()));
+        httpServer.start();
+        return prometheusExporter;
+    }
+
+    private void handle(HttpExchange httpExchange) throws IOException {
+        try (httpExchange) {
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            httpExchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            httpExchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = httpExchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        } catch (RuntimeException e) {
+            System.err.printf("failed to render metrics due to %s%n", e.getMessage());
+        }
+    }
+
+    public String render() {
+        StringBuilder builder = new StringBuilder();
+        renderRequests(builder);
+        renderNetwork(builder);
+        renderLogs(builder);
+        renderJvm(builder);
+        return builder.toString();
+    }
+
+    private static void renderRequests(StringBuilder builder) {
+        // step 1: request, error and byte counters per key version
+        header(builder, "kafka_network_requests_total", "counter", "Requests received.");
+        for (RequestMetrics requestMetrics : ExchangeMapper.getREQUEST_METRICS_MAP().values()) {
+            sample(builder, "kafka_network_requests_total", requestLabels(requestMetrics), requestMetrics.getRequestCount());
+        }
+        header(builder, "kafka_network_request_errors_total", "counter", "Responses holding an error, by first error code.");
+        for (RequestMetrics requestMetrics : ExchangeMapper.getREQUEST_METRICS_MAP().values()) {
+            for (Map.Entry<String, Long> errorCount : requestMetrics.getErrorCounts().entrySet()) {
+                sample(builder, "kafka_network_request_errors_total",
+                        requestLabels(requestMetrics) + ",error=\"" + escape(errorCount.getKey()) + "\"", errorCount.getValue());
+            }
+        }
+        header(builder, "kafka_network_request_bytes_total", "counter", "Request bytes received.");
+        for (RequestMetrics requestMetrics : ExchangeMapper.getREQUEST_METRICS_MAP().values()) {
+            sample(builder, "kafka_network_request_bytes_total", requestLabels(requestMetrics), requestMetrics.getBytesIn());
+        }
+        header(builder, "kafka_network_response_bytes_total", "counter", "Response bytes sent.");
+        for (RequestMetrics requestMetrics : ExchangeMapper.getREQUEST_METRICS_MAP().values()) {
+            sample(builder, "kafka_network_response_bytes_total", requestLabels(requestMetrics), requestMetrics.getBytesOut());
+        }
+
+        // step 2: latency quantiles of each exchange stage
+        header(builder, "kafka_network_request_stage_seconds", "summary", "Time spent in each stage of an exchange.");
+        for (RequestMetrics requestMetrics : ExchangeMapper.getREQUEST_METRICS_MAP().values()) {
+            for (RequestMetrics.Stage stage : RequestMetrics.Stage.values()) {
+                LatencyHistogram latencyHistogram = requestMetrics.getStageLatency(stage);
+                String labels = requestLabels(requestMetrics) + ",stage=\"" + stage.name().toLowerCase() + "\"";
+                for (double quantile : QUANTILES) {
+                    sample(builder, "kafka_network_request_stage_seconds", labels + ",quantile=\"" + quantile + "\"",
+                            latencyHistogram.getValueAtPercentile(quantile) / NANOS_PER_SECOND);
+                }
+                sample(builder, "kafka_network_request_stage_seconds_sum", labels, latencyHistogram.getSum() / NANOS_PER_SECOND);
+                sample(builder, "kafka_network_request_stage_seconds_count", labels, latencyHistogram.getCount());
+            }
+        }
+    }
+
+    private static void renderNetwork(StringBuilder builder) {
+        header(builder, "kafka_network_active_connections", "gauge", "Open client connections.");
+        sample(builder, "kafka_network_active_connections", null, Metrics.getActiveConnections());
+
+        BufferPool bufferPool = ExchangeMapper.getREQUEST_BUFFER_POOL();
+        header(builder, "kafka_network_request_buffer_pool_acquisitions_total", "counter", "Request frame buffers acquired, by outcome.");
+        sample(builder, "kafka_network_request_buffer_pool_acquisitions_total", "result=\"hit\"", bufferPool.getHitCount());
+        sample(builder, "kafka_network_request_buffer_pool_acquisitions_total", "result=\"miss\"", bufferPool.getMissCount());
+        sample(builder, "kafka_network_request_buffer_pool_acquisitions_total", "result=\"unpooled\"", bufferPool.getUnpooledCount());
+    }
+
+    private static void renderLogs(StringBuilder builder) {
+        // step 1: offsets and size of each partition under log.dirs, each family rendered as one group
+        List<PartitionLog> partitionLogs = Kafka.getPartitionLogs();
+        header(builder, "kafka_log_log_start_offset", "gauge", "First offset of the partition.");
+        for (PartitionLog partitionLog : partitionLogs) {
+            if (partitionLog != null) {
+                sample(builder, "kafka_log_log_start_offset", partitionLabels(partitionLog), partitionLog.getLogStartOffset());
+            }
+        }
+        header(builder, "kafka_log_log_end_offset", "gauge", "Offset the next appended record gets.");
+        for (PartitionLog partitionLog : partitionLogs) {
+            if (partitionLog != null) {
+                sample(builder, "kafka_log_log_end_offset", partitionLabels(partitionLog), partitionLog.getLogEndOffset());
+            }
+        }
+        header(builder, "kafka_log_size_bytes", "gauge", "Bytes of the partition segments.");
+        for (PartitionLog partitionLog : partitionLogs) {
+            if (partitionLog != null) {
+                sample(builder, "kafka_log_size_bytes", partitionLabels(partitionLog), partitionLog.getSize());
+            }
+        }
+
+        // step 2: record bytes produced and fetched per topic
+        header(builder, "kafka_topic_produce_bytes_total", "counter", "Record bytes appended to the topic.");
+        for (Map.Entry<String, TopicMetrics> topicMetrics : Metrics.getTOPIC_METRICS_MAP().entrySet()) {
+            sample(builder, "kafka_topic_produce_bytes_total", topicLabels(topicMetrics.getKey()), topicMetrics.getValue().getProduceBytes());
+        }
+        header(builder, "kafka_topic_fetch_bytes_total", "counter", "Record bytes returned by fetches of the topic.");
+        for (Map.Entry<String, TopicMetrics> topicMetrics : Metrics.getTOPIC_METRICS_MAP().entrySet()) {
+            sample(builder, "kafka_topic_fetch_bytes_total", topicLabels(topicMetrics.getKey()), topicMetrics.getValue().getFetchBytes());
+        }
+    }
+
+    private static void renderJvm(StringBuilder builder) {
+        MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+        header(builder, "jvm_memory_used_bytes", "gauge", "Used memory by area.");
+        sample(builder, "jvm_memory_used_bytes", "area=\"heap\"", memoryMXBean.getHeapMemoryUsage().getUsed());
+        sample(builder, "jvm_memory_used_bytes", "area=\"nonheap\"", memoryMXBean.getNonHeapMemoryUsage().getUsed());
+        header(builder, "jvm_memory_max_bytes", "gauge", "Max memory by area, -1 when undefined.");
+        sample(builder, "jvm_memory_max_bytes", "area=\"heap\"", memoryMXBean.getHeapMemoryUsage().getMax());
+        sample(builder, "jvm_memory_max_bytes", "area=\"nonheap\"", memoryMXBean.getNonHeapMemoryUsage().getMax());
+
+        header(builder, "jvm_memory_pool_used_bytes", "gauge", "Used memory by pool.");
+        for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+            sample(builder, "jvm_memory_pool_used_bytes", "pool=\"" + escape(memoryPoolMXBean.getName()) + "\"", memoryPoolMXBean.getUsage().getUsed());
+        }
+        header(builder, "jvm_buffer_pool_used_bytes", "gauge", "Used direct and mapped buffer memory.");
+        for (BufferPoolMXBean bufferPoolMXBean : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            sample(builder, "jvm_buffer_pool_used_bytes", "pool=\"" + escape(bufferPoolMXBean.getName()) + "\"", bufferPoolMXBean.getMemoryUsed());
+        }
+
+        header(builder, "jvm_gc_collection_seconds", "summary", "Time spent in garbage collections by collector.");
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String labels = "gc=\"" + escape(garbageCollectorMXBean.getName()) + "\"";
+            sample(builder, "jvm_gc_collection_seconds_count", labels, garbageCollectorMXBean.getCollectionCount());
+            sample(builder, "jvm_gc_collection_seconds_sum", labels, garbageCollectorMXBean.getCollectionTime() / 1e3);
+        }
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        header(builder, "jvm_threads_current", "gauge", "Live platform threads.");
+        sample(builder, "jvm_threads_current", null, threadMXBean.getThreadCount());
+        header(builder, "process_uptime_seconds", "gauge", "Time since the broker started.");
+        sample(builder, "process_uptime_seconds", null, ManagementFactory.getRuntimeMXBean().getUptime() / 1e3);
+    }
+
+    private static String requestLabels(RequestMetrics requestMetrics) {
+        return "request=\"" + requestMetrics.getName() + "\",version=\"" + requestMetrics.getVersion() + "\"";
+    }
+
+    private static String partitionLabels(PartitionLog partitionLog) {
+        return topicLabels(partitionLog.getTopicPartition().topicName()) + ",partition=\"" + partitionLog.getTopicPartition().partitionIndex() + "\"";
+    }
+
+    private static String topicLabels(String topicName) {
+        return "topic=\"" + escape(topicName) + "\"";
+    }
+
+    private static void header(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder builder, String name, String labels, double value) {
+        builder.append(name);
+        if (labels != null) {
+            builder.append('{').append(labels).append('}');
+        }
+        builder.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            builder.append((long) value);
+        } else {
+            builder.append(value);
+        }
+        builder.append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+}
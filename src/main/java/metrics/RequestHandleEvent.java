@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Handling a request into its response object, disk appends and reads included
+ */
+@Name("kafka.RequestHandle")
+@Label("Request Handle")
+@Category({"Kafka", "Request"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class RequestHandleEvent extends Event {
+
+    @Label("API Key")
+    public short apiKey;
+
+    @Label("API Version")
+    public short apiVersion;
+
+    @Label("Correlation Id")
+    public int correlationId;
+}
@@ -0,0 +1,144 @@
+package metrics;
+
+import domain.message.KeyVersion;
+import enums.ErrorCode;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and stage latencies of the requests of one API key and version, recorded around each stage of an
+ * exchange. Recording is lock-free and allocation-free, so it can be done on the request path of any thread.
+ */
+public class RequestMetrics implements RequestMetricsMXBean {
+
+    private final String name;
+    private final KeyVersion keyVersion;
+    private final Meter requests = new Meter();
+    private final Meter errors = new Meter();
+    private final LongAdder[] errorCounts = new LongAdder[ErrorCode.values().length];
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LatencyHistogram[] stageLatencies = new LatencyHistogram[Stage.values().length];
+
+    /**
+     * @param name API name the metrics are registered under, e.g. Produce
+     */
+    public RequestMetrics(String name, KeyVersion keyVersion) {
+        this.name = name;
+        this.keyVersion = keyVersion;
+        for (int i = 0; i < errorCounts.length; i++) {
+            errorCounts[i] = new LongAdder();
+        }
+        for (int i = 0; i < stageLatencies.length; i++) {
+            stageLatencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Record a request whose frame, length prefix included, has been read and extracted
+     */
+    public void recordRequest(long requestBytes) {
+        requests.mark();
+        bytesIn.add(requestBytes);
+    }
+
+    public void recordErrorCode(ErrorCode errorCode) {
+        if (errorCode == ErrorCode.NONE) {
+            return;
+        }
+        errors.mark();
+        errorCounts[errorCode.ordinal()].increment();
+    }
+
+    public void recordResponse(long responseBytes) {
+        bytesOut.add(responseBytes);
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stageLatencies[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram getStageLatency(Stage stage) {
+        return stageLatencies[stage.ordinal()];
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public KeyVersion getKeyVersion() {
+        return keyVersion;
+    }
+
+    public short getVersion() {
+        return keyVersion.version();
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.getCount();
+    }
+
+    @Override
+    public double getRequestRate() {
+        return requests.getRate();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.getCount();
+    }
+
+    @Override
+    public double getErrorRate() {
+        return errors.getRate();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> errorCountMap = new TreeMap<>();
+        for (ErrorCode errorCode : ErrorCode.values()) {
+            long errorCount = errorCounts[errorCode.ordinal()].sum();
+            if (errorCount > 0) {
+                errorCountMap.put(errorCode.name(), errorCount);
+            }
+        }
+        return errorCountMap;
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    /**
+     * Stages of an exchange, each named after the histogram it is registered as
+     */
+    public enum Stage {
+        // reading the request frame once its length prefix has been received
+        REQUEST_READ("RequestReadTimeNs"),
+        // decoding the header and request body from the frame
+        REQUEST_EXTRACT("RequestExtractTimeNs"),
+        // handling the request and serializing its response
+        HANDLE("HandleTimeNs"),
+        // writing the response to the socket, record data included
+        RESPONSE_WRITE("ResponseWriteTimeNs");
+
+        private final String metricName;
+
+        Stage(String metricName) {
+            this.metricName = metricName;
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * Management view of the requests of one API key and version. Rates are per second, averaged over about the last
+ * minute.
+ */
+public interface RequestMetricsMXBean {
+
+    long getRequestCount();
+
+    double getRequestRate();
+
+    long getErrorCount();
+
+    double getErrorRate();
+
+    /**
+     * @return error responses by error code name, codes that never occurred being left out
+     */
+    Map<String, Long> getErrorCounts();
+
+    long getBytesIn();
+
+    long getBytesOut();
+}
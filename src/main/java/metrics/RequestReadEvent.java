@@ -0,0 +1,29 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Reading a request frame after its length prefix then extracting its header and body, emitted for requests
+ * taking longer than the threshold of the recording. Thresholds of the broker events default to 1 ms and are set
+ * per recording with the kafka.jfc settings.
+ */
+@Name("kafka.RequestRead")
+@Label("Request Read")
+@Category({"Kafka", "Request"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class RequestReadEvent extends Event {
+
+    @Label("API Key")
+    public short apiKey;
+
+    @Label("API Version")
+    public short apiVersion;
+
+    @Label("Correlation Id")
+    public int correlationId;
+
+    @Label("Request Bytes")
+    @DataAmount
+    public int requestBytes;
+}
@@ -0,0 +1,24 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Writing a response frame to the socket of a blocking connection, record data included
+ */
+@Name("kafka.ResponseWrite")
+@Label("Response Write")
+@Category({"Kafka", "Request"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class ResponseWriteEvent extends Event {
+
+    @Label("API Key")
+    public short apiKey;
+
+    @Label("API Version")
+    public short apiVersion;
+
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+}
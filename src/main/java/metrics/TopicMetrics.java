@@ -0,0 +1,28 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Record bytes appended to and fetched from the partitions of one topic
+ */
+public class TopicMetrics {
+
+    private final LongAdder produceBytes = new LongAdder();
+    private final LongAdder fetchBytes = new LongAdder();
+
+    public void recordProduceBytes(long bytes) {
+        produceBytes.add(bytes);
+    }
+
+    public void recordFetchBytes(long bytes) {
+        fetchBytes.add(bytes);
+    }
+
+    public long getProduceBytes() {
+        return produceBytes.sum();
+    }
+
+    public long getFetchBytes() {
+        return fetchBytes.sum();
+    }
+}
@@ -0,0 +1,141 @@
+package network;
+
+import domain.ExchangeMapper;
+import domain.message.ConnectionContext;
+import io.GatheringDataOutput;
+import metrics.Metrics;
+import metrics.RequestMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking state of one client connection: the frame being read and the responses waiting to be written.
+ * Reads and writes only happen on the owning reactor thread, responses are queued from the handler threads.
+ */
+public class Connection {
+
+    private final SocketChannel socketChannel;
+    private final int maxFrameBytes;
+    private final ConnectionContext connectionContext = new ConnectionContext();
+    private final ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES);
+    private final Queue<PendingWrite> writeQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isClosed = new AtomicBoolean();
+    private ByteBuffer frameBuffer;
+    private long frameReadStartNanos;
+    private long frameReadNanos;
+    private long writeStartNanos;
+
+    public Connection(SocketChannel socketChannel, int maxFrameBytes) {
+        this.socketChannel = socketChannel;
+        this.maxFrameBytes = maxFrameBytes;
+        Metrics.recordConnectionOpened();
+    }
+
+    /**
+     * Read as many bytes of the current frame as are available
+     *
+     * @return the complete frame without its length prefix, or null while the frame is still incomplete
+     * @throws ClosedConnectionException when the peer closed the connection
+     * @throws exception.DataInputException when the frame length prefix is negative or above maxFrameBytes
+     */
+    public ByteBuffer read() throws IOException {
+        if (frameBuffer == null) {
+            if (socketChannel.read(sizeBuffer) < 0) {
+                throw new ClosedConnectionException();
+            }
+            if (sizeBuffer.hasRemaining()) {
+                return null;
+            }
+            ExchangeMapper.checkFrameSize(sizeBuffer.getInt(0), maxFrameBytes);
+            frameBuffer = ExchangeMapper.getREQUEST_BUFFER_POOL().acquire(sizeBuffer.getInt(0));
+            frameReadStartNanos = System.nanoTime();
+            sizeBuffer.clear();
+        }
+        if (frameBuffer.hasRemaining() && socketChannel.read(frameBuffer) < 0) {
+            throw new ClosedConnectionException();
+        }
+        if (frameBuffer.hasRemaining()) {
+            return null;
+        }
+        ByteBuffer frame = frameBuffer.flip();
+        frameBuffer = null;
+        frameReadNanos = System.nanoTime() - frameReadStartNanos;
+        return frame;
+    }
+
+    /**
+     * @param requestMetrics metrics of the request being answered, null when the request could not be extracted
+     */
+    public void enqueue(GatheringDataOutput response, RequestMetrics requestMetrics) {
+        writeQueue.add(new PendingWrite(response, requestMetrics));
+    }
+
+    /**
+     * Write queued responses until the socket buffer is full
+     *
+     * @return true when every queued response has been written
+     */
+    public boolean write() throws IOException {
+        PendingWrite pendingWrite;
+        while ((pendingWrite = writeQueue.peek()) != null) {
+            if (writeStartNanos == 0) {
+                writeStartNanos = System.nanoTime();
+            }
+            if (!pendingWrite.response().writeTo(socketChannel)) {
+                return false;
+            }
+            writeQueue.poll();
+            ExchangeMapper.recordResponseWritten(pendingWrite.requestMetrics(), pendingWrite.response(), System.nanoTime() - writeStartNanos);
+            writeStartNanos = 0;
+        }
+        return true;
+    }
+
+    public void close() {
+        // a failed exchange closes from a handler thread, the reactor may close the same connection
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        Metrics.recordConnectionClosed();
+        ExchangeMapper.getREQUEST_BUFFER_POOL().release(frameBuffer);
+        frameBuffer = null;
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            System.err.printf("failed to close connection due to %s%n", e.getMessage());
+        }
+    }
+
+    public SocketChannel getSocketChannel() {
+        return socketChannel;
+    }
+
+    public ConnectionContext getConnectionContext() {
+        return connectionContext;
+    }
+
+    /**
+     * @return time spent reading the last complete frame after its length prefix
+     */
+    public long getFrameReadNanos() {
+        return frameReadNanos;
+    }
+
+    private record PendingWrite(
+            GatheringDataOutput response,
+            RequestMetrics requestMetrics
+    ) {
+    }
+
+    public static class ClosedConnectionException extends IOException {
+
+        public ClosedConnectionException() {
+            super("connection closed by peer");
+        }
+    }
+}
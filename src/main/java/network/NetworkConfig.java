@@ -0,0 +1,46 @@
+package network;
+
+import constant.Constant;
+
+import java.util.Properties;
+
+/**
+ * Network settings read from the server properties. The broker listens on port, 9092 unless set. The thread mode
+ * serves each connection from its own virtual thread with blocking reads, the selector mode multiplexes every
+ * connection over num.network.threads reactor threads.
+ * In thread mode up to connection.max.in.flight.requests requests of a connection are handled concurrently.
+ * A request frame larger than socket.request.max.bytes closes its connection before any buffer is allocated for it.
+ */
+public record NetworkConfig(
+        int port,
+        String mode,
+        int numNetworkThreads,
+        int maxInFlightRequests,
+        int socketRequestMaxBytes
+) {
+
+    public static NetworkConfig of(Properties properties) {
+        int port = Integer.parseInt(properties.getProperty(
+                Constant.PORT,
+                String.valueOf(Constant.DEFAULT_PORT)
+        ).trim());
+        String mode = properties.getProperty(Constant.NETWORK_MODE, Constant.NETWORK_MODE_THREAD).trim();
+        int numNetworkThreads = Integer.parseInt(properties.getProperty(
+                Constant.NUM_NETWORK_THREADS,
+                String.valueOf(Constant.DEFAULT_NUM_NETWORK_THREADS)
+        ).trim());
+        int maxInFlightRequests = Integer.parseInt(properties.getProperty(
+                Constant.CONNECTION_MAX_IN_FLIGHT_REQUESTS,
+                String.valueOf(Constant.DEFAULT_CONNECTION_MAX_IN_FLIGHT_REQUESTS)
+        ).trim());
+        int socketRequestMaxBytes = Integer.parseInt(properties.getProperty(
+                Constant.SOCKET_REQUEST_MAX_BYTES,
+                String.valueOf(Constant.DEFAULT_SOCKET_REQUEST_MAX_BYTES)
+        ).trim());
+        return new NetworkConfig(port, mode, numNetworkThreads, maxInFlightRequests, socketRequestMaxBytes);
+    }
+
+    public boolean isSelectorMode() {
+        return Constant.NETWORK_MODE_SELECTOR.equalsIgnoreCase(mode);
+    }
+}
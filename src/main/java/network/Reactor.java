@@ -0,0 +1,150 @@
+package network;
+
+import domain.ExchangeMapper;
+import domain.message.Request;
+import exception.ProtocolException;
+import io.GatheringDataOutput;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Selector loop owning a subset of the connections. A complete request frame mutes reads on its connection and is
+ * handed to the handler executor; once the response is queued the connection switches to writing, then back to
+ * reading when the response has been fully sent, so each connection has at most one request in flight.
+ */
+public class Reactor implements Runnable {
+
+    private final Selector selector;
+    private final ExecutorService handlerExecutorService;
+    private final int maxFrameBytes;
+    private final Queue<SocketChannel> newSocketChannels = new ConcurrentLinkedQueue<>();
+    private final Queue<SelectionKey> writableKeys = new ConcurrentLinkedQueue<>();
+
+    public Reactor(ExecutorService handlerExecutorService, int maxFrameBytes) throws IOException {
+        this.selector = Selector.open();
+        this.handlerExecutorService = handlerExecutorService;
+        this.maxFrameBytes = maxFrameBytes;
+    }
+
+    public void register(SocketChannel socketChannel) {
+        newSocketChannels.add(socketChannel);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                registerNewConnections();
+                enableWrites();
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey selectionKey = iterator.next();
+                    iterator.remove();
+                    Connection connection = (Connection) selectionKey.attachment();
+                    try {
+                        if (selectionKey.isReadable()) {
+                            read(selectionKey, connection);
+                        } else if (selectionKey.isWritable()) {
+                            write(selectionKey, connection);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // only this connection is closed, the reactor keeps serving the others
+                        if (!(e instanceof Connection.ClosedConnectionException)) {
+                            System.err.printf("failed to exchange for socket=%s due to error=%s%n", connection.getSocketChannel().socket().getRemoteSocketAddress(), e.getMessage());
+                        }
+                        selectionKey.cancel();
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.printf("failed to run reactor due to %s%n", e.getMessage());
+        }
+    }
+
+    private void registerNewConnections() {
+        SocketChannel socketChannel;
+        while ((socketChannel = newSocketChannels.poll()) != null) {
+            Connection connection = new Connection(socketChannel, maxFrameBytes);
+            try {
+                socketChannel.configureBlocking(Boolean.FALSE);
+                socketChannel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                System.err.printf("failed to register connection due to %s%n", e.getMessage());
+                connection.close();
+            }
+        }
+    }
+
+    private void enableWrites() {
+        SelectionKey selectionKey;
+        while ((selectionKey = writableKeys.poll()) != null) {
+            if (selectionKey.isValid()) {
+                selectionKey.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void read(SelectionKey selectionKey, Connection connection) throws IOException {
+        ByteBuffer frame = connection.read();
+        if (frame == null) {
+            return;
+        }
+
+        // mute the connection until its response has been written
+        selectionKey.interestOps(0);
+        long frameReadNanos = connection.getFrameReadNanos();
+        handlerExecutorService.execute(() -> {
+            if (!exchange(connection, frame, frameReadNanos)) {
+                selectionKey.cancel();
+                connection.close();
+                return;
+            }
+            writableKeys.add(selectionKey);
+            selector.wakeup();
+        });
+    }
+
+    private void write(SelectionKey selectionKey, Connection connection) throws IOException {
+        if (connection.write()) {
+            selectionKey.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Queue the response frame of the request on its connection, if the client expects one
+     *
+     * @return false when the request could not be handled and the connection must be closed
+     */
+    private static boolean exchange(Connection connection, ByteBuffer frame, long frameReadNanos) {
+        try {
+            // step 1: convert frame bytes into request object
+            Request request = ExchangeMapper.extractRequest(frame, frameReadNanos, connection.getConnectionContext());
+
+            // step 2: handle request object then convert response object to output frame
+            GatheringDataOutput response = ExchangeMapper.exchange(request);
+            if (response != null) {
+                connection.enqueue(response, ExchangeMapper.getRequestMetrics(request));
+            }
+        } catch (ProtocolException e) {
+            connection.enqueue(ExchangeMapper.serializeErrorResponse(e), null);
+        } catch (RuntimeException e) {
+            System.err.printf("failed to handle request due to error=%s%n", e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        return true;
+    }
+}
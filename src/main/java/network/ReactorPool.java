@@ -0,0 +1,31 @@
+package network;
+
+import java.io.IOException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of reactor threads sharing one virtual thread executor for request handling.
+ * Accepted connections are spread round-robin across the reactors.
+ */
+public class ReactorPool {
+
+    private final Reactor[] reactors;
+    private final AtomicInteger nextReactorIndex = new AtomicInteger();
+
+    public ReactorPool(int numNetworkThreads, int maxFrameBytes) throws IOException {
+        ExecutorService handlerExecutorService = Executors.newVirtualThreadPerTaskExecutor();
+        this.reactors = new Reactor[numNetworkThreads];
+        for (int i = 0; i < numNetworkThreads; i++) {
+            reactors[i] = new Reactor(handlerExecutorService, maxFrameBytes);
+            Thread.ofPlatform().name("network-reactor-" + i).daemon().start(reactors[i]);
+        }
+    }
+
+    public void register(SocketChannel socketChannel) {
+        int reactorIndex = Math.floorMod(nextReactorIndex.getAndIncrement(), reactors.length);
+        reactors[reactorIndex].register(socketChannel);
+    }
+}
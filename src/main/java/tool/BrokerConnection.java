@@ -0,0 +1,153 @@
+package tool;
+
+import domain.message.Header;
+import domain.message.KeyVersion;
+import domain.message.RequestBody;
+import io.BufferDataInputStream;
+import io.DataInput;
+import io.GatheringDataOutput;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Client connection keeping up to maxInFlightRequests requests on the wire, responses being matched to requests in
+ * send order. Only APIs answering with a V1 response header are supported.
+ */
+public class BrokerConnection implements Closeable {
+
+    private final SocketChannel socketChannel;
+    private final String clientId;
+    private final int maxInFlightRequests;
+    private final Semaphore inFlightRequests;
+    private final BlockingQueue<PendingRequest> pendingRequests = new LinkedBlockingQueue<>();
+    private int correlationId;
+
+    public BrokerConnection(InetSocketAddress address, String clientId, int maxInFlightRequests) throws IOException {
+        this.socketChannel = SocketChannel.open(address);
+        this.socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+        this.clientId = clientId;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        Thread.ofPlatform().daemon().name("%s-reader".formatted(clientId)).start(this::readResponses);
+    }
+
+    /**
+     * Send a request timed from the moment it is written
+     */
+    public void send(KeyVersion keyVersion, RequestBody requestBody, ResponseHandler responseHandler) throws IOException, InterruptedException {
+        send(keyVersion, requestBody, -1L, responseHandler);
+    }
+
+    /**
+     * Blocks while maxInFlightRequests requests are waiting for their response. A request expecting no response, e.g.
+     * an acks=0 produce, is handed to its handler with a null dataInput as soon as it is written.
+     *
+     * @param intendedNanos the time the request should have been sent at, so that the latency of a request delayed by
+     *                      slow responses to earlier ones includes that delay, or -1 to time it from the moment it is
+     *                      written
+     */
+    public void send(KeyVersion keyVersion, RequestBody requestBody, long intendedNanos, ResponseHandler responseHandler) throws IOException, InterruptedException {
+        GatheringDataOutput frame = GatheringDataOutput.ofFrame();
+        new Header.V2(keyVersion, ++correlationId, clientId).serialize(frame);
+        requestBody.serialize(frame);
+
+        if (!requestBody.expectsResponse()) {
+            long startNanos = intendedNanos < 0 ? System.nanoTime() : intendedNanos;
+            while (!frame.writeTo(socketChannel)) {
+                Thread.onSpinWait();
+            }
+            responseHandler.handle(null, 0, System.nanoTime() - startNanos);
+            return;
+        }
+
+        inFlightRequests.acquire();
+        long startNanos = intendedNanos < 0 ? System.nanoTime() : intendedNanos;
+        pendingRequests.add(new PendingRequest(correlationId, startNanos, responseHandler));
+        while (!frame.writeTo(socketChannel)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Wait for the responses of all sent requests
+     */
+    public void drain() throws InterruptedException {
+        inFlightRequests.acquire(maxInFlightRequests);
+        inFlightRequests.release(maxInFlightRequests);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socketChannel.close();
+    }
+
+    private void readResponses() {
+        ByteBuffer sizeBuffer = ByteBuffer.allocate(Integer.BYTES);
+        try {
+            while (true) {
+                readFully(sizeBuffer.clear());
+                ByteBuffer frame = ByteBuffer.allocate(sizeBuffer.getInt(0));
+                readFully(frame);
+                long receivedNanos = System.nanoTime();
+
+                PendingRequest pendingRequest = pendingRequests.take();
+                DataInput dataInput = new BufferDataInputStream(frame.flip());
+                int responseCorrelationId = dataInput.readSignedInt();
+                if (responseCorrelationId != pendingRequest.correlationId()) {
+                    throw new IOException("expected correlation id %s but received %s".formatted(pendingRequest.correlationId(), responseCorrelationId));
+                }
+                dataInput.skipEmptyTaggedFieldArray();
+                pendingRequest.responseHandler().handle(dataInput, frame.limit(), receivedNanos - pendingRequest.startNanos());
+                inFlightRequests.release();
+            }
+        } catch (EOFException e) {
+            // connection closed by the broker or at the end of the run
+        } catch (IOException | RuntimeException e) {
+            if (socketChannel.isOpen()) {
+                System.err.printf("failed to read response due to %s%n", e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // unblock senders waiting on a connection which will not answer anymore
+            inFlightRequests.release(maxInFlightRequests);
+        }
+    }
+
+    private void readFully(ByteBuffer byteBuffer) throws IOException {
+        while (byteBuffer.hasRemaining()) {
+            if (socketChannel.read(byteBuffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseHandler {
+
+        /**
+         * @param dataInput     the response body, positioned after the response header, or null for a request
+         *                      expecting no response
+         * @param responseBytes the size of the response frame
+         * @param latencyNanos  the time from sending the request to reading the whole response, or to writing the
+         *                      request when no response is expected
+         */
+        void handle(DataInput dataInput, int responseBytes, long latencyNanos);
+    }
+
+    private record PendingRequest(
+            int correlationId,
+            long startNanos,
+            ResponseHandler responseHandler
+    ) {
+    }
+}
@@ -0,0 +1,105 @@
+package tool;
+
+import constant.Constant;
+import enums.ErrorCode;
+import io.DataInput;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Records and bytes returned by a fetch response. The response is read here rather than by FetchResponseV16, whose
+ * records are file regions on the broker side.
+ */
+public class FetchProgress {
+
+    private long records;
+    private long bytes;
+    private boolean isError;
+    private ErrorCode errorCode;
+    private int sessionId;
+
+    /**
+     * Walk the complete batches returned for each partition to move its fetch offset past them, a partition out of
+     * range being moved to its log start offset
+     */
+    public static FetchProgress read(DataInput dataInput, Map<Integer, Long> fetchOffsets) {
+        FetchProgress fetchProgress = new FetchProgress();
+        dataInput.readSignedInt();
+        fetchProgress.errorCode = ErrorCode.of(dataInput.readSignedShort());
+        fetchProgress.isError = fetchProgress.errorCode != ErrorCode.NONE;
+        fetchProgress.sessionId = dataInput.readSignedInt();
+        dataInput.readCompactArray(topicInput -> {
+            topicInput.readUuid();
+            topicInput.readCompactArray(partitionInput -> {
+                fetchProgress.readPartition(partitionInput, fetchOffsets);
+                return null;
+            });
+            topicInput.skipEmptyTaggedFieldArray();
+            return null;
+        });
+        dataInput.skipEmptyTaggedFieldArray();
+        return fetchProgress;
+    }
+
+    private void readPartition(DataInput dataInput, Map<Integer, Long> fetchOffsets) {
+        int partitionIndex = dataInput.readSignedInt();
+        ErrorCode errorCode = ErrorCode.of(dataInput.readSignedShort());
+        dataInput.readSignedLong();
+        dataInput.readSignedLong();
+        long logStartOffset = dataInput.readSignedLong();
+        dataInput.readCompactArray(abortedInput -> {
+            abortedInput.readSignedLong();
+            abortedInput.readSignedLong();
+            abortedInput.skipEmptyTaggedFieldArray();
+            return null;
+        });
+        dataInput.readSignedInt();
+        ByteBuffer recordData = dataInput.readCompactBytes();
+        dataInput.skipEmptyTaggedFieldArray();
+
+        if (errorCode == ErrorCode.OFFSET_OUT_OF_RANGE) {
+            fetchOffsets.put(partitionIndex, logStartOffset);
+        }
+        if (errorCode != ErrorCode.NONE) {
+            isError = Boolean.TRUE;
+        }
+        if (recordData == null) {
+            return;
+        }
+        int position = recordData.position();
+        while (recordData.limit() - position >= Constant.BATCH_HEADER_SIZE) {
+            int batchSize = Constant.LOG_OVERHEAD + recordData.getInt(position + Long.BYTES);
+            if (recordData.limit() - position < batchSize) {
+                break;
+            }
+            fetchOffsets.put(partitionIndex, recordData.getLong(position) + recordData.getInt(position + Constant.BATCH_LAST_OFFSET_DELTA_POSITION) + 1);
+            records += recordData.getInt(position + Constant.BATCH_RECORDS_COUNT_POSITION);
+            bytes += batchSize;
+            position += batchSize;
+        }
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    public boolean isError() {
+        return isError;
+    }
+
+    /**
+     * @return the error of the whole fetch, e.g. an unknown fetch session
+     */
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+}
@@ -0,0 +1,43 @@
+package tool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces sends at a fixed rate from a fixed start: the n-th send is due at start + n / rate whatever happened to the
+ * previous ones. Measuring latency from that due time rather than from the actual send keeps the time a request
+ * spent waiting behind slow responses in the results, instead of silently sending less (coordinated omission).
+ */
+public class FixedRateScheduler {
+
+    private final double intervalNanos;
+    private long startNanos = -1L;
+    private long sends;
+
+    /**
+     * @param ratePerSecond sends per second, or a non-positive value to send as fast as responses allow
+     */
+    public FixedRateScheduler(double ratePerSecond) {
+        this.intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+    }
+
+    /**
+     * Wait until the next send is due
+     *
+     * @return the time the send was due at, or -1 when unthrottled so that latency is measured from the send itself
+     */
+    public long awaitNext() {
+        if (intervalNanos == 0) {
+            return -1L;
+        }
+        if (startNanos < 0) {
+            startNanos = System.nanoTime();
+        }
+        long dueNanos = startNanos + (long) (sends++ * intervalNanos);
+        long waitNanos;
+        while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+        return dueNanos;
+    }
+}
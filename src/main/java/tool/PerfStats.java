@@ -0,0 +1,98 @@
+package tool;
+
+import metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records, bytes, errors and latencies of a perf test, over the whole run and over the current report window
+ */
+public class PerfStats {
+
+    private final String action;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window(System.nanoTime()));
+
+    /**
+     * @param action how records are reported, e.g. sent or consumed
+     */
+    public PerfStats(String action) {
+        this.action = action;
+    }
+
+    public void record(long recordCount, long byteCount, long latencyNanos, boolean isError) {
+        requests.increment();
+        records.add(recordCount);
+        bytes.add(byteCount);
+        if (isError) {
+            errors.increment();
+        }
+        latencyHistogram.record(latencyNanos);
+
+        Window currentWindow = window.get();
+        currentWindow.records.add(recordCount);
+        currentWindow.bytes.add(byteCount);
+        currentWindow.latencyHistogram.record(latencyNanos);
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    /**
+     * Print then start a new report window
+     */
+    public void printWindow() {
+        Window previousWindow = window.getAndSet(new Window(System.nanoTime()));
+        double elapsedSeconds = (System.nanoTime() - previousWindow.startNanos) / 1e9;
+        long windowRecords = previousWindow.records.sum();
+        System.out.printf("%d records %s, %.1f records/sec (%.2f MB/sec), %.1f ms avg latency, %.1f ms max latency%n",
+                windowRecords,
+                action,
+                windowRecords / elapsedSeconds,
+                previousWindow.bytes.sum() / elapsedSeconds / (1024 * 1024),
+                toMillis(previousWindow.latencyHistogram.getMean()),
+                toMillis(previousWindow.latencyHistogram.getMax()));
+    }
+
+    public void printTotal() {
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        long totalRecords = records.sum();
+        System.out.printf("%d records %s, %d requests, %d errors, %.1f records/sec (%.2f MB/sec), %.1f ms avg latency, %.1f ms max latency, %.1f ms 50th, %.1f ms 95th, %.1f ms 99th, %.1f ms 99.9th.%n",
+                totalRecords,
+                action,
+                requests.sum(),
+                errors.sum(),
+                totalRecords / elapsedSeconds,
+                bytes.sum() / elapsedSeconds / (1024 * 1024),
+                toMillis(latencyHistogram.getMean()),
+                toMillis(latencyHistogram.getMax()),
+                toMillis(latencyHistogram.getValueAtPercentile(0.5)),
+                toMillis(latencyHistogram.getValueAtPercentile(0.95)),
+                toMillis(latencyHistogram.getValueAtPercentile(0.99)),
+                toMillis(latencyHistogram.getValueAtPercentile(0.999)));
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private record Window(
+            long startNanos,
+            LongAdder records,
+            LongAdder bytes,
+            LatencyHistogram latencyHistogram
+    ) {
+
+        Window(long startNanos) {
+            this(startNanos, new LongAdder(), new LongAdder(), new LatencyHistogram());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package tool;
+
+import constant.Constant;
+import domain.message.KeyVersion;
+import domain.message.request.DescribeTopicPartitionsRequestV0;
+import domain.message.request.FetchRequestV16;
+import domain.message.request.ProduceRequestV11;
+import domain.message.response.DescribeTopicPartitionsResponseV0;
+import domain.message.response.ProduceResponseV11;
+import enums.ErrorCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator speaking the broker's wire protocol, in the spirit of kafka-producer-perf-test and
+ * kafka-consumer-perf-test:
+ * <pre>
+ * java --enable-preview -cp codecrafters-kafka.jar tool.PerfTest produce topic=foo num.records=1000000 throughput=50000
+ * java --enable-preview -cp codecrafters-kafka.jar tool.PerfTest consume topic=foo num.records=1000000
+ * </pre>
+ * See PerfTestConfig for the other key=value settings.
+ */
+public class PerfTest {
+
+    private static final String PRODUCE = "produce";
+    private static final String CONSUME = "consume";
+    private static final int RESPONSE_PARTITION_LIMIT = 2000;
+
+    private final PerfTestConfig config;
+
+    public PerfTest(PerfTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0 || !(PRODUCE.equals(args[0]) || CONSUME.equals(args[0]))) {
+            System.err.printf("usage: PerfTest %s|%s topic=<name> [key=value...]%n", PRODUCE, CONSUME);
+            System.exit(1);
+        }
+        Properties properties = new Properties();
+        for (String arg : Arrays.copyOfRange(args, 1, args.length)) {
+            String[] keyValue = arg.split("=", 2);
+            properties.setProperty(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+        }
+        PerfTest perfTest = new PerfTest(PerfTestConfig.of(properties));
+        if (PRODUCE.equals(args[0])) {
+            perfTest.produce();
+        } else {
+            perfTest.consume();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Send ceil(numRecords / recordsPerBatch) batches to the partitions of the topic in turn
+     */
+    public void produce() throws IOException, InterruptedException {
+        DescribeTopicPartitionsResponseV0.Topic topic = describeTopic();
+        List<ProduceRequestV11> produceRequests = new ArrayList<>();
+        byte[] batch = RecordBatches.of(randomValues());
+        for (DescribeTopicPartitionsResponseV0.Partition partition : topic.partitions()) {
+            produceRequests.add(new ProduceRequestV11(
+                    null,
+                    config.acks(),
+                    Duration.ofSeconds(30),
+                    List.of(new ProduceRequestV11.Topic(topic.name(), List.of(new ProduceRequestV11.Partition(partition.partitionIndex(), ByteBuffer.wrap(batch)))))
+            ));
+        }
+
+        PerfStats perfStats = new PerfStats("sent");
+        FixedRateScheduler fixedRateScheduler = new FixedRateScheduler(config.throughput() / config.recordsPerBatch());
+        long batchCount = (config.numRecords() + config.recordsPerBatch() - 1) / config.recordsPerBatch();
+        ScheduledExecutorService reporter = startReporter(perfStats);
+        try (BrokerConnection brokerConnection = new BrokerConnection(config.bootstrapServer(), "producer-perf-test", config.inFlight())) {
+            for (long i = 0; i < batchCount; i++) {
+                long intendedNanos = fixedRateScheduler.awaitNext();
+                brokerConnection.send(KeyVersion.PRODUCE, produceRequests.get((int) (i % produceRequests.size())), intendedNanos,
+                        (dataInput, responseBytes, latencyNanos) -> perfStats.record(
+                                config.recordsPerBatch(),
+                                batch.length,
+                                latencyNanos,
+                                dataInput != null && hasProduceError(ProduceResponseV11.deserialize(dataInput))
+                        ));
+            }
+            brokerConnection.drain();
+        } finally {
+            reporter.shutdownNow();
+        }
+        perfStats.printTotal();
+    }
+
+    /**
+     * Fetch every partition of the topic from offset 0 until numRecords records were consumed, or none arrived for
+     * timeoutMs. One fetch is in flight at a time since the next offsets are only known from its response. With a
+     * fetch session, a fetch only lists the partitions whose offset moved since they were last sent, and the session
+     * is emptied through forgotten topics once done.
+     */
+    public void consume() throws IOException, InterruptedException {
+        DescribeTopicPartitionsResponseV0.Topic topic = describeTopic();
+        Map<Integer, Long> fetchOffsets = new TreeMap<>();
+        topic.partitions().forEach(partition -> fetchOffsets.put(partition.partitionIndex(), 0L));
+        Map<Integer, Long> sentFetchOffsets = new HashMap<>();
+        int sessionId = Constant.SESSIONLESS_FETCH_SESSION_ID;
+        int sessionEpoch = config.fetchSession() ? Constant.INITIAL_FETCH_SESSION_EPOCH : Constant.FINAL_FETCH_SESSION_EPOCH;
+
+        PerfStats perfStats = new PerfStats("consumed");
+        FixedRateScheduler fixedRateScheduler = new FixedRateScheduler(config.fetchRate());
+        ScheduledExecutorService reporter = startReporter(perfStats);
+        long lastProgressMs = System.currentTimeMillis();
+        try (BrokerConnection brokerConnection = new BrokerConnection(config.bootstrapServer(), "consumer-perf-test", 1)) {
+            while (perfStats.getRecords() < config.numRecords() && System.currentTimeMillis() - lastProgressMs < config.timeoutMs()) {
+                boolean isIncremental = sessionEpoch > Constant.INITIAL_FETCH_SESSION_EPOCH;
+                List<FetchRequestV16.Partition> partitions = fetchOffsets.entrySet().stream()
+                        .filter(entry -> !isIncremental || !entry.getValue().equals(sentFetchOffsets.get(entry.getKey())))
+                        .map(entry -> new FetchRequestV16.Partition(entry.getKey(), -1, entry.getValue(), -1, -1L, config.fetchMaxBytes()))
+                        .toList();
+                partitions.forEach(partition -> sentFetchOffsets.put(partition.partition(), partition.fetchOffset()));
+                FetchRequestV16 fetchRequest = new FetchRequestV16(
+                        Duration.ofMillis(config.fetchMaxWaitMs()),
+                        1,
+                        config.fetchMaxBytes(),
+                        (byte) 0,
+                        sessionId,
+                        sessionEpoch,
+                        partitions.isEmpty() ? List.of() : List.of(new FetchRequestV16.Topic(topic.topicId(), partitions)),
+                        List.of(),
+                        ""
+                );
+
+                long consumedRecords = perfStats.getRecords();
+                long intendedNanos = fixedRateScheduler.awaitNext();
+                FetchProgress[] fetchProgress = new FetchProgress[1];
+                brokerConnection.send(KeyVersion.FETCH, fetchRequest, intendedNanos,
+                        (dataInput, responseBytes, latencyNanos) -> {
+                            fetchProgress[0] = FetchProgress.read(dataInput, fetchOffsets);
+                            perfStats.record(fetchProgress[0].getRecords(), fetchProgress[0].getBytes(), latencyNanos, fetchProgress[0].isError());
+                        });
+                brokerConnection.drain();
+                if (perfStats.getRecords() > consumedRecords) {
+                    lastProgressMs = System.currentTimeMillis();
+                }
+
+                // a session the broker evicted or no longer follows is started over with a full fetch
+                if (!config.fetchSession() || fetchProgress[0] == null) {
+                    continue;
+                }
+                ErrorCode errorCode = fetchProgress[0].getErrorCode();
+                if (errorCode == ErrorCode.FETCH_SESSION_ID_NOT_FOUND || errorCode == ErrorCode.INVALID_FETCH_SESSION_EPOCH) {
+                    sessionId = Constant.SESSIONLESS_FETCH_SESSION_ID;
+                    sessionEpoch = Constant.INITIAL_FETCH_SESSION_EPOCH;
+                    sentFetchOffsets.clear();
+                } else if (!isIncremental) {
+                    sessionId = fetchProgress[0].getSessionId();
+                    sessionEpoch = sessionId == Constant.SESSIONLESS_FETCH_SESSION_ID ? Constant.FINAL_FETCH_SESSION_EPOCH : sessionEpoch + 1;
+                } else {
+                    sessionEpoch++;
+                }
+            }
+
+            // leave the session the way an unsubscribing consumer does, by forgetting every partition
+            if (config.fetchSession() && sessionEpoch > Constant.INITIAL_FETCH_SESSION_EPOCH) {
+                forgetPartitions(brokerConnection, topic, sessionId, sessionEpoch);
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        perfStats.printTotal();
+    }
+
+    /**
+     * Send an incremental fetch listing no partitions and all of them as forgotten, which leaves the session empty
+     */
+    private void forgetPartitions(BrokerConnection brokerConnection, DescribeTopicPartitionsResponseV0.Topic topic, int sessionId, int sessionEpoch) throws IOException, InterruptedException {
+        List<Integer> partitionIndexes = topic.partitions().stream()
+                .map(DescribeTopicPartitionsResponseV0.Partition::partitionIndex)
+                .toList();
+        FetchRequestV16 fetchRequest = new FetchRequestV16(
+                Duration.ZERO,
+                1,
+                config.fetchMaxBytes(),
+                (byte) 0,
+                sessionId,
+                sessionEpoch,
+                List.of(),
+                List.of(new FetchRequestV16.ForgottenTopic(topic.topicId(), partitionIndexes)),
+                ""
+        );
+        FetchProgress[] fetchProgress = new FetchProgress[1];
+        brokerConnection.send(KeyVersion.FETCH, fetchRequest,
+                (dataInput, responseBytes, latencyNanos) -> fetchProgress[0] = FetchProgress.read(dataInput, new HashMap<>()));
+        brokerConnection.drain();
+        if (fetchProgress[0] == null || fetchProgress[0].getErrorCode() != ErrorCode.NONE || fetchProgress[0].getRecords() > 0) {
+            System.err.printf("fetch forgetting %s partitions of %s was not answered with an empty session%n", partitionIndexes.size(), config.topic());
+        }
+    }
+
+    private DescribeTopicPartitionsResponseV0.Topic describeTopic() throws IOException, InterruptedException {
+        DescribeTopicPartitionsResponseV0[] describeResponse = new DescribeTopicPartitionsResponseV0[1];
+        try (BrokerConnection brokerConnection = new BrokerConnection(config.bootstrapServer(), "perf-test-metadata", 1)) {
+            DescribeTopicPartitionsRequestV0 describeRequest = new DescribeTopicPartitionsRequestV0(
+                    List.of(new DescribeTopicPartitionsRequestV0.Topic(config.topic())),
+                    RESPONSE_PARTITION_LIMIT,
+                    null
+            );
+            brokerConnection.send(KeyVersion.DESCRIBE_TOPIC_PARTITIONS, describeRequest,
+                    (dataInput, responseBytes, latencyNanos) -> describeResponse[0] = DescribeTopicPartitionsResponseV0.deserialize(dataInput));
+            brokerConnection.drain();
+        }
+        if (describeResponse[0] == null || describeResponse[0].topics().isEmpty()) {
+            throw new IOException("no metadata received for topic %s".formatted(config.topic()));
+        }
+        DescribeTopicPartitionsResponseV0.Topic topic = describeResponse[0].topics().getFirst();
+        if (topic.errorCode() != ErrorCode.NONE || topic.partitions().isEmpty()) {
+            throw new IOException("topic %s is not available due to %s".formatted(config.topic(), topic.errorCode()));
+        }
+        return topic;
+    }
+
+    private List<byte[]> randomValues() {
+        Random random = new Random();
+        List<byte[]> values = new ArrayList<>();
+        for (int i = 0; i < config.recordsPerBatch(); i++) {
+            byte[] value = new byte[config.recordSize()];
+            random.nextBytes(value);
+            values.add(value);
+        }
+        return values;
+    }
+
+    private ScheduledExecutorService startReporter(PerfStats perfStats) {
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("perf-test-reporter").factory());
+        reporter.scheduleAtFixedRate(perfStats::printWindow, config.reportIntervalMs(), config.reportIntervalMs(), TimeUnit.MILLISECONDS);
+        return reporter;
+    }
+
+    private static boolean hasProduceError(ProduceResponseV11 produceResponse) {
+        return produceResponse.responses().stream()
+                .flatMap(response -> response.partitions().stream())
+                .anyMatch(partition -> partition.errorCode() != ErrorCode.NONE);
+    }
+}
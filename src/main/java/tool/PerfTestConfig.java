@@ -0,0 +1,55 @@
+package tool;
+
+import constant.Constant;
+
+import java.net.InetSocketAddress;
+import java.util.Properties;
+
+/**
+ * @param throughput   records per second to produce, or -1 to produce as fast as responses allow
+ * @param fetchRate    fetch requests per second, or -1 to fetch as fast as responses allow
+ * @param timeoutMs    time without consuming new records after which the consumer stops
+ * @param fetchSession whether the consumer uses an incremental fetch session, only sending the partitions whose
+ *                     fetch offset moved
+ */
+public record PerfTestConfig(
+        InetSocketAddress bootstrapServer,
+        String topic,
+        long numRecords,
+        int recordSize,
+        int recordsPerBatch,
+        double throughput,
+        int inFlight,
+        short acks,
+        double fetchRate,
+        int fetchMaxBytes,
+        int fetchMaxWaitMs,
+        boolean fetchSession,
+        long reportIntervalMs,
+        long timeoutMs
+) {
+
+    public static PerfTestConfig of(Properties properties) {
+        String[] bootstrapServer = properties.getProperty("bootstrap.server", "localhost:" + Constant.DEFAULT_PORT).split(":");
+        String topic = properties.getProperty("topic");
+        if (topic == null) {
+            throw new IllegalArgumentException("missing topic=<name>");
+        }
+        return new PerfTestConfig(
+                new InetSocketAddress(bootstrapServer[0], Integer.parseInt(bootstrapServer[1])),
+                topic,
+                Long.parseLong(properties.getProperty("num.records", "1000000")),
+                Integer.parseInt(properties.getProperty("record.size", "100")),
+                Integer.parseInt(properties.getProperty("records.per.batch", "100")),
+                Double.parseDouble(properties.getProperty("throughput", "-1")),
+                Integer.parseInt(properties.getProperty("in.flight", "5")),
+                Short.parseShort(properties.getProperty("acks", "1")),
+                Double.parseDouble(properties.getProperty("fetch.rate", "-1")),
+                Integer.parseInt(properties.getProperty("fetch.max.bytes", "1048576")),
+                Integer.parseInt(properties.getProperty("fetch.max.wait.ms", "500")),
+                Boolean.parseBoolean(properties.getProperty("fetch.session", "true")),
+                Long.parseLong(properties.getProperty("report.interval.ms", "5000")),
+                Long.parseLong(properties.getProperty("timeout.ms", "10000"))
+        );
+    }
+}
@@ -0,0 +1,78 @@
+package tool;
+
+import constant.Constant;
+import io.DataOutput;
+import io.KafkaDataOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Encodes uncompressed v2 record batches, the broker assigning their base offset on append
+ */
+public class RecordBatches {
+
+    public static byte[] of(List<byte[]> values) {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < values.size(); i++) {
+            int offsetDelta = i;
+            byte[] value = values.get(i);
+            byte[] record = encode(dataOutput -> writeRecord(dataOutput, offsetDelta, value));
+            records.add(encode(dataOutput -> {
+                dataOutput.writeUnsignedVarInt(zigZag(record.length));
+                dataOutput.writeBytes(record);
+            }));
+        }
+        int recordsSize = records.stream().mapToInt(record -> record.length).sum();
+        long timestamp = System.currentTimeMillis();
+
+        byte[] batch = encode(dataOutput -> {
+            dataOutput.writeLong(0L);
+            dataOutput.writeInt(Constant.BATCH_HEADER_SIZE - Constant.LOG_OVERHEAD + recordsSize);
+            dataOutput.writeInt(0);
+            dataOutput.writeByte(Constant.BATCH_MAGIC_V2);
+            dataOutput.writeInt(0);
+            dataOutput.writeShort((short) 0);
+            dataOutput.writeInt(values.size() - 1);
+            dataOutput.writeLong(timestamp);
+            dataOutput.writeLong(timestamp);
+            dataOutput.writeLong(-1L);
+            dataOutput.writeShort((short) -1);
+            dataOutput.writeInt(-1);
+            dataOutput.writeInt(values.size());
+            records.forEach(dataOutput::writeBytes);
+        });
+
+        // the crc covers everything from the attributes on, so it stays valid when the broker sets the base offset
+        CRC32C crc = new CRC32C();
+        crc.update(batch, Constant.BATCH_ATTRIBUTES_POSITION, batch.length - Constant.BATCH_ATTRIBUTES_POSITION);
+        ByteBuffer.wrap(batch).putInt(Constant.BATCH_CRC_POSITION, (int) crc.getValue());
+        return batch;
+    }
+
+    private static void writeRecord(DataOutput dataOutput, int offsetDelta, byte[] value) {
+        dataOutput.writeByte((byte) 0);
+        dataOutput.writeUnsignedVarInt(zigZag(0));
+        dataOutput.writeUnsignedVarInt(zigZag(offsetDelta));
+        dataOutput.writeUnsignedVarInt(zigZag(-1));
+        dataOutput.writeUnsignedVarInt(zigZag(value.length));
+        dataOutput.writeBytes(value);
+        dataOutput.writeUnsignedVarInt(0);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static byte[] encode(Consumer<DataOutput> writer) {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        KafkaDataOutputStream kafkaDataOutputStream = new KafkaDataOutputStream(byteArrayOutputStream);
+        writer.accept(kafkaDataOutputStream);
+        kafkaDataOutputStream.flush();
+        return byteArrayOutputStream.toByteArray();
+    }
+}